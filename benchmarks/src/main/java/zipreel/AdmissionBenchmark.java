@@ -0,0 +1,103 @@
+package zipreel;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Hit rate and throughput of the W-TinyLFU L2 ("tinylfu": admission sketch behind a 5%
+// window, as ZipReelService configures it) against the old always-admit LFU ("always").
+// Searches follow a Zipf distribution over a key space 100x the cache, with a share of
+// one-off keys that are never searched again. With driftEvery set, the popular keys move
+// to a fresh part of the key space every that many searches, which the old policy is slow
+// to follow because the previous favourites keep their high counts. The hit rate is
+// hits / (hits + misses).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdmissionBenchmark {
+    private static final int CAPACITY = 1000;
+    private static final int KEY_SPACE = 100 * CAPACITY;
+
+    @Param({"tinylfu", "always"})
+    String policy;
+
+    @Param({"0.8", "1.0"})
+    double skew;
+
+    @Param({"0", "20"})
+    int oneOffPercent;
+
+    @Param({"0", "100000"})
+    int driftEvery;
+
+    SearchKey[] keys;
+    Zipf keyRanks;
+    SplittableRandom random;
+    L2Cache cache;
+    List<Movie> results;
+    int oneOffs;
+    int searches;
+    int hotOffset;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new SearchKey[KEY_SPACE];
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = SearchKey.of(SearchType.TITLE, Workload.title(i));
+        }
+        keyRanks = new Zipf(KEY_SPACE, skew);
+        random = new SplittableRandom(42);
+        results = List.of();
+        cache = policy.equals("tinylfu")
+            ? new L2Cache(CAPACITY, TinyLfuAdmissionPolicy::new, CAPACITY / 20)
+            : new L2Cache(CAPACITY);
+    }
+
+    @Benchmark
+    public List<Movie> getOrPut(Counters counters) {
+        if (driftEvery > 0 && ++searches % driftEvery == 0) {
+            hotOffset = (hotOffset + KEY_SPACE / 7) % KEY_SPACE;
+        }
+        SearchKey key = random.nextInt(100) < oneOffPercent
+            ? SearchKey.of(SearchType.TITLE, "One-off " + oneOffs++)
+            : keys[(keyRanks.next(random) + hotOffset) % KEY_SPACE];
+        List<Movie> cached = cache.get(key);
+        if (cached != null) {
+            counters.hits++;
+            return cached;
+        }
+        counters.misses++;
+        cache.put(key, results);
+        return results;
+    }
+}
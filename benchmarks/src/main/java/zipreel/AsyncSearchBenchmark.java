@@ -0,0 +1,84 @@
+package zipreel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time to complete a burst of inFlight concurrent searchAsync calls, with the service's
+// search executor starting one platform thread per search versus one virtual thread per
+// search (the default).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncSearchBenchmark {
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"10000"})
+    int inFlight;
+
+    @Param({"100000"})
+    int catalogSize;
+
+    @Param({"1000"})
+    int users;
+
+    @Param({"1.0"})
+    double skew;
+
+    ZipReelService service;
+    ExecutorService executor;
+    Zipf genres;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = threads.equals("virtual")
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory());
+        service = Workload.service(catalogSize, users, InvalidationMode.EVICT, executor);
+        genres = new Zipf(Workload.GENRES, skew);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public int burst() {
+        List<CompletableFuture<List<SearchResult>>> searches = new ArrayList<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            String user = Workload.user(random.nextInt(users));
+            String genre = Workload.genre(genres.next(random));
+            searches.add(service.searchAsync(user, SearchType.GENRE, genre));
+        }
+        int found = 0;
+        for (CompletableFuture<List<SearchResult>> search : searches) {
+            found += search.join().size();
+        }
+        return found;
+    }
+}
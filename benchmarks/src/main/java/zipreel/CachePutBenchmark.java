@@ -0,0 +1,83 @@
+package zipreel;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of L1Cache.put and L2Cache.put once both are full, so every put of a new key
+// evicts (or, for L2, is weighed by the admission policy). Keys are one title per
+// catalog movie, drawn with the skew parameter.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CachePutBenchmark {
+    private static final int L1_ENTRIES_PER_USER = 5;
+    private static final int L2_ENTRIES = 1024;
+    private static final int L2_WINDOW_ENTRIES = 16;
+
+    @Param({"10000", "1000000"})
+    int catalogSize;
+
+    @Param({"1", "1000"})
+    int users;
+
+    @Param({"0.0", "1.0"})
+    double skew;
+
+    SearchKey[] keys;
+    String[] userIds;
+    Zipf keyRanks;
+    SplittableRandom random;
+    L1Cache l1Cache;
+    L2Cache l2Cache;
+    List<Movie> results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new SearchKey[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            keys[i] = SearchKey.of(SearchType.TITLE, "Movie " + i);
+        }
+        userIds = new String[users];
+        for (int u = 0; u < users; u++) {
+            userIds[u] = Workload.user(u);
+        }
+        keyRanks = new Zipf(catalogSize, skew);
+        random = new SplittableRandom(42);
+        results = List.of();
+        l1Cache = new L1Cache(L1_ENTRIES_PER_USER);
+        l2Cache = new L2Cache(L2_ENTRIES, TinyLfuAdmissionPolicy::new, L2_WINDOW_ENTRIES);
+        for (int i = 0; i < L2_ENTRIES; i++) {
+            l1Cache.put(userIds[i % users], keys[i % catalogSize], results);
+            l2Cache.put(keys[i % catalogSize], results);
+        }
+    }
+
+    @Benchmark
+    public L1Cache l1PutUnderEviction() {
+        l1Cache.put(userIds[random.nextInt(users)], keys[keyRanks.next(random)], results);
+        return l1Cache;
+    }
+
+    @Benchmark
+    public L2Cache l2PutUnderEviction() {
+        l2Cache.put(keys[keyRanks.next(random)], results);
+        return l2Cache;
+    }
+}
@@ -0,0 +1,66 @@
+package zipreel;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// PRIMARY_STORE latency of searchMulti as the catalog grows, with both cache tiers cleared
+// before every call. afterInsert adds a movie first, so the rating index must take in the
+// new ordinal before it can answer. A catalog takes about 1 GB of heap per million movies,
+// so the 10M catalog needs e.g. -jvmArgsAppend -Xmx16g.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColdMultiBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int catalogSize;
+
+    ZipReelService service;
+    SplittableRandom random;
+    int nextMovie;
+    String genre;
+    int year;
+    double minRating;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = Workload.service(catalogSize, 1, InvalidationMode.EVICT);
+        random = new SplittableRandom(42);
+        nextMovie = catalogSize;
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches() {
+        Workload.clearCaches(service);
+        genre = Workload.genre(random.nextInt(Workload.GENRES));
+        year = Workload.FIRST_YEAR + random.nextInt(Workload.YEARS);
+        minRating = random.nextInt(10);
+    }
+
+    @Benchmark
+    public List<SearchResult> multi() {
+        return service.searchMulti(Workload.user(0), genre, year, minRating);
+    }
+
+    @Benchmark
+    public List<SearchResult> afterInsert() {
+        Workload.quietly(() -> Workload.addMovies(service, nextMovie, ++nextMovie));
+        return service.searchMulti(Workload.user(0), genre, year, minRating);
+    }
+}
@@ -0,0 +1,84 @@
+package zipreel;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Single-threaded predicate scan throughput over the whole catalog, reported as rows per
+// microsecond by the rows counter: MovieColumns.scan over the packed columns against the
+// same genre/year/rating predicate evaluated on an array of Movie objects. The objects are
+// allocated in catalog order, which flatters objectScan. The 10M catalog needs about 3 GB of
+// heap (-jvmArgsAppend -Xmx3g).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnScanBenchmark {
+    @Param({"1000000", "10000000"})
+    int catalogSize;
+
+    MovieColumns columns;
+    Movie[] movies;
+    int genreId;
+    int year;
+    double minRating;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(0);
+        columns = new MovieColumns();
+        movies = new Movie[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            movies[i] = new Movie("m" + i, "", Workload.genre(random.nextInt(Workload.GENRES)),
+                Workload.FIRST_YEAR + random.nextInt(Workload.YEARS), random.nextInt(101) / 10.0, i);
+            columns.append(movies[i]);
+        }
+        genreId = GenreDictionary.lookup(Workload.genre(0));
+        year = Workload.FIRST_YEAR;
+        minRating = 5.0;
+    }
+
+    @Benchmark
+    public int[] columnScan(Rows rows) {
+        rows.rows += catalogSize;
+        return columns.scan(genreId, year, minRating);
+    }
+
+    @Benchmark
+    public int[] objectScan(Rows rows) {
+        rows.rows += catalogSize;
+        int[] matches = new int[16];
+        int count = 0;
+        for (Movie movie : movies) {
+            if (movie.getGenreId() == genreId && movie.getYear() == year && movie.getRating() >= minRating) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = movie.getOrdinal();
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+}
@@ -0,0 +1,146 @@
+package zipreel;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Dictionary-encoded genres against the String genre field Movie had before: a genre
+// predicate over the whole catalog, reported as rows per microsecond, comparing
+// movie.getGenreId() == id with movie.genre.equals(name). Each StringGenreMovie holds the
+// String it was created with, as addMovie's callers pass a fresh one per movie. Ids and
+// titles are shared empty strings, so only the genre representation differs.
+// main() first prints the retained heap per movie of both layouts, then runs the scans:
+//   java -Xmx3g -cp benchmarks/target/benchmarks.jar zipreel.GenreIdBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenreIdBenchmark {
+    @Param({"1000000", "10000000"})
+    int catalogSize;
+
+    Movie[] movies;
+    StringGenreMovie[] stringGenreMovies;
+    int genreId;
+    String genre;
+
+    // Movie's layout before genres were dictionary-encoded.
+    static final class StringGenreMovie {
+        private final String id;
+        private final String title;
+        private final String genre;
+        private final int year;
+        private final double rating;
+        private final int ordinal;
+
+        StringGenreMovie(String id, String title, String genre, int year, double rating, int ordinal) {
+            this.id = id;
+            this.title = title;
+            this.genre = genre;
+            this.year = year;
+            this.rating = rating;
+            this.ordinal = ordinal;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movies = movies(catalogSize);
+        stringGenreMovies = stringGenreMovies(catalogSize);
+        genre = Workload.genre(0);
+        genreId = GenreDictionary.lookup(genre);
+    }
+
+    static Movie[] movies(int catalogSize) {
+        SplittableRandom random = new SplittableRandom(0);
+        Movie[] movies = new Movie[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            movies[i] = new Movie("", "", Workload.genre(random.nextInt(Workload.GENRES)),
+                Workload.FIRST_YEAR + random.nextInt(Workload.YEARS), random.nextInt(101) / 10.0, i);
+        }
+        return movies;
+    }
+
+    static StringGenreMovie[] stringGenreMovies(int catalogSize) {
+        SplittableRandom random = new SplittableRandom(0);
+        StringGenreMovie[] movies = new StringGenreMovie[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            movies[i] = new StringGenreMovie("", "", Workload.genre(random.nextInt(Workload.GENRES)),
+                Workload.FIRST_YEAR + random.nextInt(Workload.YEARS), random.nextInt(101) / 10.0, i);
+        }
+        return movies;
+    }
+
+    @Benchmark
+    public int genreIdScan(Rows rows) {
+        rows.rows += catalogSize;
+        int matches = 0;
+        for (Movie movie : movies) {
+            matches += movie.getGenreId() == genreId ? 1 : 0;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int genreStringScan(Rows rows) {
+        rows.rows += catalogSize;
+        int matches = 0;
+        for (StringGenreMovie movie : stringGenreMovies) {
+            matches += movie.genre.equals(genre) ? 1 : 0;
+        }
+        return matches;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        long ids = retainedBytes(GenreIdBenchmark::movies, catalogSize);
+        long strings = retainedBytes(GenreIdBenchmark::stringGenreMovies, catalogSize);
+        System.out.printf("%,d movies: genre ids %,d bytes (%.1f per movie), genre strings %,d bytes (%.1f per movie)%n",
+            catalogSize, ids, (double) ids / catalogSize, strings, (double) strings / catalogSize);
+        new Runner(new OptionsBuilder()
+            .include(GenreIdBenchmark.class.getSimpleName())
+            .param("catalogSize", String.valueOf(catalogSize))
+            .jvmArgsAppend("-Xmx3g")
+            .build()).run();
+    }
+
+    // Heap still in use after building the catalog and collecting garbage, less the heap in
+    // use before.
+    private static long retainedBytes(IntFunction<Object[]> catalog, int catalogSize) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+        Object[] built = catalog.apply(catalogSize);
+        System.gc();
+        long after = memory.getHeapMemoryUsage().getUsed();
+        Reference.reachabilityFence(built);
+        return after - before;
+    }
+}
@@ -0,0 +1,69 @@
+package zipreel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Allocation per L1 hit on a large genre answer (catalogSize / 50 movies). hit only takes
+// the response, which should allocate a constant few objects whatever the answer size;
+// hitAndRead also walks every result, creating a SearchResult wrapper per element that
+// the JIT can scalar-replace because it never escapes the loop.
+// main() runs it with the GC profiler, like passing -prof gc:
+//   java -cp benchmarks/target/benchmarks.jar zipreel.HitAllocationBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HitAllocationBenchmark {
+    private static final String USER = Workload.user(0);
+    private static final String GENRE = Workload.genre(0);
+
+    @Param({"50000", "500000"})
+    int catalogSize;
+
+    ZipReelService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = Workload.service(catalogSize, 1, InvalidationMode.EVICT);
+        service.search(USER, SearchType.GENRE, GENRE);
+    }
+
+    @Benchmark
+    public List<SearchResult> hit() {
+        return service.search(USER, SearchType.GENRE, GENRE);
+    }
+
+    @Benchmark
+    public double hitAndRead() {
+        double total = 0;
+        for (SearchResult result : service.search(USER, SearchType.GENRE, GENRE)) {
+            total += result.getMovie().getRating();
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(HitAllocationBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
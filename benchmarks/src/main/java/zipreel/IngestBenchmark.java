@@ -0,0 +1,113 @@
+package zipreel;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cache hit rate while movies stream in: ingestPercent of the calls add a new release, the
+// rest are skewed genre searches and searchMulti over recent years, the same genres and
+// years the new releases land in. EVICT drops every answer a new movie affects;
+// PATCH extends them in place. A search counts as a hit when it is not answered from the
+// primary store, and the hit rate is hits / (hits + misses).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark {
+    private static final int RECENT_YEARS = 3;
+
+    @Param({"EVICT", "PATCH"})
+    String mode;
+
+    @Param({"1", "10"})
+    int ingestPercent;
+
+    @Param({"100000"})
+    int catalogSize;
+
+    @Param({"100"})
+    int users;
+
+    @Param({"1.0"})
+    double skew;
+
+    ZipReelService service;
+    Zipf genres;
+    SplittableRandom random;
+    int nextMovie;
+    PrintStream stdout;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = Workload.service(catalogSize, users, InvalidationMode.valueOf(mode));
+        genres = new Zipf(Workload.GENRES, skew);
+        random = new SplittableRandom(42);
+        nextMovie = catalogSize;
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public List<SearchResult> searchWhileIngesting(Counters counters) {
+        if (random.nextInt(100) < ingestPercent) {
+            int movie = nextMovie++;
+            service.addMovie("m" + movie, Workload.title(movie), Workload.genre(genres.next(random)),
+                recentYear(), random.nextInt(101) / 10.0);
+            return List.of();
+        }
+        String user = Workload.user(random.nextInt(users));
+        String genre = Workload.genre(genres.next(random));
+        List<SearchResult> results = random.nextBoolean()
+            ? service.search(user, SearchType.GENRE, genre)
+            : service.searchMulti(user, genre, recentYear(), random.nextInt(6));
+        if (!results.isEmpty()) {
+            if (results.get(0).getFoundIn() == CacheLevel.PRIMARY_STORE) {
+                counters.misses++;
+            } else {
+                counters.hits++;
+            }
+        }
+        return results;
+    }
+
+    private int recentYear() {
+        return Workload.FIRST_YEAR + Workload.YEARS - 1 - random.nextInt(RECENT_YEARS);
+    }
+}
@@ -0,0 +1,64 @@
+package zipreel;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// L1Cache get and put throughput for one user as the per-user capacity grows; with an O(1)
+// LRU neither should slow down. get always hits; put draws from twice the capacity, so
+// about half of the puts insert a new key and evict the least recently used one.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class L1CacheBenchmark {
+    private static final String USER = Workload.user(0);
+
+    @Param({"10", "1000", "100000"})
+    int entriesPerUser;
+
+    SearchKey[] keys;
+    SplittableRandom random;
+    L1Cache cache;
+    List<Movie> results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new SearchKey[2 * entriesPerUser];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = SearchKey.of(SearchType.TITLE, Workload.title(i));
+        }
+        random = new SplittableRandom(42);
+        results = List.of();
+        cache = new L1Cache(entriesPerUser);
+        for (int i = 0; i < entriesPerUser; i++) {
+            cache.put(USER, keys[i], results);
+        }
+    }
+
+    @Benchmark
+    public List<Movie> get() {
+        return cache.get(USER, keys[random.nextInt(entriesPerUser)]);
+    }
+
+    @Benchmark
+    public L1Cache put() {
+        cache.put(USER, keys[random.nextInt(keys.length)], results);
+        return cache;
+    }
+}
@@ -0,0 +1,68 @@
+package zipreel;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The plain LFU L2 (no window, every candidate admitted) under a Zipfian key stream over
+// twice as many keys as it holds. getOrPut is a cache-aside lookup: hits bump a frequency
+// bucket, misses insert and evict the least frequently used entry. Both are O(1), so the
+// 1M-entry cache should cost about the same per operation as the small one.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class L2LfuBenchmark {
+    @Param({"10000", "1000000"})
+    int entries;
+
+    @Param({"0.8", "1.0"})
+    double skew;
+
+    SearchKey[] keys;
+    Zipf keyRanks;
+    SplittableRandom random;
+    L2Cache cache;
+    List<Movie> results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new SearchKey[2 * entries];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = SearchKey.of(SearchType.TITLE, Workload.title(i));
+        }
+        keyRanks = new Zipf(keys.length, skew);
+        random = new SplittableRandom(42);
+        results = List.of();
+        cache = new L2Cache(entries);
+        for (int i = 0; i < entries; i++) {
+            cache.put(keys[i], results);
+        }
+    }
+
+    @Benchmark
+    public List<Movie> getOrPut() {
+        SearchKey key = keys[keyRanks.next(random)];
+        List<Movie> cached = cache.get(key);
+        if (cached == null) {
+            cache.put(key, results);
+            return results;
+        }
+        return cached;
+    }
+}
@@ -0,0 +1,62 @@
+package zipreel;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Sequential against fork-join column scans over catalogs from 16k to 4M rows. The
+// smallest size where parallel wins is where ZipReelService's parallelScanThreshold
+// belongs on this hardware; the default, 2^18 rows, sits between the middle sizes. The
+// crossover moves with the common pool's parallelism, which setUp prints.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelScanBenchmark {
+    @Param({"16384", "65536", "262144", "1048576", "4194304"})
+    int rows;
+
+    MovieColumns columns;
+    int genreId;
+    int year;
+    double minRating;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(0);
+        columns = new MovieColumns();
+        for (int i = 0; i < rows; i++) {
+            columns.append(new Movie("m" + i, "", Workload.genre(random.nextInt(Workload.GENRES)),
+                Workload.FIRST_YEAR + random.nextInt(Workload.YEARS), random.nextInt(101) / 10.0, i));
+        }
+        genreId = GenreDictionary.lookup(Workload.genre(0));
+        year = Workload.FIRST_YEAR;
+        minRating = 5.0;
+        System.out.println("Common pool parallelism: " + ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    @Benchmark
+    public int[] sequential() {
+        return columns.scan(genreId, year, minRating);
+    }
+
+    @Benchmark
+    public int[] parallel() {
+        return columns.parallelScan(genreId, year, minRating);
+    }
+}
@@ -0,0 +1,70 @@
+package zipreel;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// PRIMARY_STORE latency of the indexed search types as the catalog grows. Both cache tiers
+// are cleared before every call. A catalog takes about 1 GB of heap per million movies, so
+// the 10M catalog needs e.g. -jvmArgsAppend -Xmx16g.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrimaryStoreBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int catalogSize;
+
+    // A String because JMH's generated code, in a subpackage, cannot see SearchType.
+    @Param({"GENRE", "YEAR", "TITLE"})
+    String type;
+
+    SearchType searchType;
+
+    ZipReelService service;
+    SplittableRandom random;
+    String searchValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = Workload.service(catalogSize, 1, InvalidationMode.EVICT);
+        searchType = SearchType.valueOf(type);
+        random = new SplittableRandom(42);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches() {
+        Workload.clearCaches(service);
+        switch (searchType) {
+            case GENRE:
+                searchValue = Workload.genre(random.nextInt(Workload.GENRES));
+                break;
+            case YEAR:
+                searchValue = String.valueOf(Workload.FIRST_YEAR + random.nextInt(Workload.YEARS));
+                break;
+            default:
+                searchValue = Workload.title(random.nextInt(catalogSize));
+                break;
+        }
+    }
+
+    @Benchmark
+    public List<SearchResult> search() {
+        return service.search(Workload.user(0), searchType, searchValue);
+    }
+}
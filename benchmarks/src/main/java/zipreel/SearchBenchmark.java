@@ -0,0 +1,101 @@
+package zipreel;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// End-to-end search latency by the tier that answers: L1 hit, L2 hit and primary-store
+// miss, plus searchMulti and a genre search whose keys follow the skew parameter.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    // One more than the per-user L1 capacity, so cycling through them always misses L1.
+    private static final int L2_KEYS_PER_USER = 6;
+
+    @Param({"10000", "1000000"})
+    int catalogSize;
+
+    @Param({"1", "1000"})
+    int users;
+
+    @Param({"0.0", "1.0"})
+    double skew;
+
+    ZipReelService service;
+    Zipf genres;
+    SplittableRandom random;
+    int[] l2Cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = Workload.service(catalogSize, users, InvalidationMode.EVICT);
+        genres = new Zipf(Workload.GENRES, skew);
+        random = new SplittableRandom(42);
+        l2Cursor = new int[users];
+        for (int u = 0; u < users; u++) {
+            for (int g = L2_KEYS_PER_USER - 1; g >= 0; g--) {
+                service.search(Workload.user(u), SearchType.GENRE, Workload.genre(g));
+            }
+        }
+    }
+
+    // Clears both cache tiers before every call so each search scans the primary store.
+    @State(Scope.Thread)
+    public static class ColdCaches {
+        @Setup(Level.Invocation)
+        public void clear(SearchBenchmark benchmark) {
+            Workload.clearCaches(benchmark.service);
+        }
+    }
+
+    private String nextUser() {
+        return Workload.user(random.nextInt(users));
+    }
+
+    @Benchmark
+    public List<SearchResult> l1Hit() {
+        // Genre0 was the last key each user searched in setUp, so it is always in L1.
+        return service.search(nextUser(), SearchType.GENRE, Workload.genre(0));
+    }
+
+    @Benchmark
+    public List<SearchResult> l2Hit() {
+        int user = random.nextInt(users);
+        int genre = l2Cursor[user];
+        l2Cursor[user] = (genre + 1) % L2_KEYS_PER_USER;
+        return service.search(Workload.user(user), SearchType.GENRE, Workload.genre(genre));
+    }
+
+    @Benchmark
+    public List<SearchResult> primaryStoreMiss(ColdCaches cold) {
+        return service.search(nextUser(), SearchType.GENRE, Workload.genre(genres.next(random)));
+    }
+
+    @Benchmark
+    public List<SearchResult> skewedGenreSearch() {
+        return service.search(nextUser(), SearchType.GENRE, Workload.genre(genres.next(random)));
+    }
+
+    @Benchmark
+    public List<SearchResult> searchMulti() {
+        return service.searchMulti(nextUser(), Workload.genre(genres.next(random)),
+            Workload.FIRST_YEAR + random.nextInt(Workload.YEARS), random.nextInt(10));
+    }
+}
@@ -0,0 +1,88 @@
+package zipreel;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of building a cache key and looking it up in a HashMap of every GENRE and MULTI
+// key: SearchKey.of and new MultiKey, whose hash is computed once from ints, against the
+// string keys they replaced, type + ":" + value and String.format("MULTI:%s:%d:%.1f", ...).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchKeyBenchmark {
+    private static final int RATINGS = 10;
+    private static final int SEARCHES = 1024;
+
+    Map<SearchKey, List<Movie>> keyed;
+    Map<String, List<Movie>> stringKeyed;
+    String[] genres = new String[SEARCHES];
+    int[] years = new int[SEARCHES];
+    double[] minRatings = new double[SEARCHES];
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keyed = new HashMap<>();
+        stringKeyed = new HashMap<>();
+        for (int g = 0; g < Workload.GENRES; g++) {
+            String name = Workload.genre(g);
+            GenreDictionary.idOf(name);
+            keyed.put(SearchKey.of(SearchType.GENRE, name), List.of());
+            stringKeyed.put(SearchType.GENRE + ":" + name, List.of());
+            for (int y = Workload.FIRST_YEAR; y < Workload.FIRST_YEAR + Workload.YEARS; y++) {
+                for (int r = 0; r < RATINGS; r++) {
+                    keyed.put(new MultiKey(name, y, r), List.of());
+                    stringKeyed.put(String.format("MULTI:%s:%d:%.1f", name, y, (double) r), List.of());
+                }
+            }
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SEARCHES; i++) {
+            genres[i] = Workload.genre(random.nextInt(Workload.GENRES));
+            years[i] = Workload.FIRST_YEAR + random.nextInt(Workload.YEARS);
+            minRatings[i] = random.nextInt(RATINGS);
+        }
+    }
+
+    @Benchmark
+    public List<Movie> genreKey() {
+        int i = next++ & (SEARCHES - 1);
+        return keyed.get(SearchKey.of(SearchType.GENRE, genres[i]));
+    }
+
+    @Benchmark
+    public List<Movie> genreString() {
+        int i = next++ & (SEARCHES - 1);
+        return stringKeyed.get(SearchType.GENRE + ":" + genres[i]);
+    }
+
+    @Benchmark
+    public List<Movie> multiKey() {
+        int i = next++ & (SEARCHES - 1);
+        return keyed.get(new MultiKey(genres[i], years[i], minRatings[i]));
+    }
+
+    @Benchmark
+    public List<Movie> multiString() {
+        int i = next++ & (SEARCHES - 1);
+        return stringKeyed.get(String.format("MULTI:%s:%d:%.1f", genres[i], years[i], minRatings[i]));
+    }
+}
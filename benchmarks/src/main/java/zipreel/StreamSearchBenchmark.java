@@ -0,0 +1,58 @@
+package zipreel;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time to the first result of a PRIMARY_STORE genre search: searchStream reads the genre's
+// posting bitmap a batch at a time, while search materializes the whole answer before
+// returning it. Both cache tiers are cleared before every call.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamSearchBenchmark {
+    @Param({"100000", "1000000"})
+    int catalogSize;
+
+    ZipReelService service;
+    SplittableRandom random;
+    String genre;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = Workload.service(catalogSize, 1, InvalidationMode.EVICT);
+        random = new SplittableRandom(42);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches() {
+        Workload.clearCaches(service);
+        genre = Workload.genre(random.nextInt(Workload.GENRES));
+    }
+
+    @Benchmark
+    public Optional<SearchResult> streamFirst() {
+        return service.searchStream(Workload.user(0), SearchType.GENRE, genre).findFirst();
+    }
+
+    @Benchmark
+    public SearchResult listFirst() {
+        return service.search(Workload.user(0), SearchType.GENRE, genre).get(0);
+    }
+}
@@ -0,0 +1,103 @@
+package zipreel;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Aggregate search throughput as threads are added. main() runs it at 1 to 64 threads:
+//   java -cp benchmarks/target/benchmarks.jar zipreel.ThroughputBenchmark
+// search is read-only; readMostly adds a movie on one call in a hundred, so writers take
+// the catalog write lock and invalidate cached answers while readers keep searching.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThroughputBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    @Param({"100000"})
+    int catalogSize;
+
+    @Param({"1000"})
+    int users;
+
+    @Param({"1.0"})
+    double skew;
+
+    ZipReelService service;
+    Zipf genres;
+    AtomicInteger nextMovie;
+    PrintStream stdout;
+
+    // Writers run on many threads at once, so stdout stays silenced for the whole trial
+    // rather than being swapped around each addMovie.
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = Workload.service(catalogSize, users, InvalidationMode.EVICT);
+        genres = new Zipf(Workload.GENRES, skew);
+        nextMovie = new AtomicInteger(catalogSize);
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public List<SearchResult> search(ThreadRandom thread) {
+        SplittableRandom random = thread.random;
+        String user = Workload.user(random.nextInt(users));
+        if (random.nextInt(4) == 0) {
+            return service.searchMulti(user, Workload.genre(genres.next(random)),
+                Workload.FIRST_YEAR + random.nextInt(Workload.YEARS), random.nextInt(10));
+        }
+        return service.search(user, SearchType.GENRE, Workload.genre(genres.next(random)));
+    }
+
+    @Benchmark
+    public List<SearchResult> readMostly(ThreadRandom thread) {
+        if (thread.random.nextInt(100) == 0) {
+            int movie = nextMovie.getAndIncrement();
+            Workload.addMovies(service, movie, movie + 1);
+            return List.of();
+        }
+        return search(thread);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : THREADS) {
+            new Runner(new OptionsBuilder()
+                .include(ThroughputBenchmark.class.getName())
+                .threads(threads)
+                .build()).run();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package zipreel;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// PRIMARY_STORE latency of TITLE_PREFIX and TITLE_FUZZY as the catalog grows; both cache
+// tiers are cleared before every call. Queries come from a random catalog title: the first
+// four letters for prefix, and its first two words with one letter changed for fuzzy.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TitleSearchBenchmark {
+    private static final String USER = Workload.user(0);
+
+    @Param({"10000", "100000", "1000000"})
+    int catalogSize;
+
+    ZipReelService service;
+    SplittableRandom random;
+    String prefix;
+    String fuzzy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = Workload.service(catalogSize, 1, InvalidationMode.EVICT);
+        random = new SplittableRandom(42);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextQuery() {
+        Workload.clearCaches(service);
+        String title = Workload.title(random.nextInt(catalogSize));
+        prefix = title.substring(0, 4);
+        String twoWords = title.substring(0, title.lastIndexOf(' '));
+        int typo = random.nextInt(twoWords.length());
+        char replacement = twoWords.charAt(typo) == 'x' ? 'y' : 'x';
+        fuzzy = twoWords.substring(0, typo) + replacement + twoWords.substring(typo + 1);
+    }
+
+    @Benchmark
+    public List<SearchResult> titlePrefix() {
+        return service.search(USER, SearchType.TITLE_PREFIX, prefix);
+    }
+
+    @Benchmark
+    public List<SearchResult> titleFuzzy() {
+        return service.search(USER, SearchType.TITLE_FUZZY, fuzzy);
+    }
+}
@@ -0,0 +1,94 @@
+package zipreel;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+
+// Synthetic catalog shared by the benchmarks. Every movie's attributes derive from its
+// ordinal, so a given catalog size always builds the same catalog.
+final class Workload {
+    static final int GENRES = 50;
+    static final int FIRST_YEAR = 1950;
+    static final int YEARS = 75;
+
+    private Workload() {
+    }
+
+    static String genre(int id) {
+        return "Genre" + id;
+    }
+
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ne", "ru", "sa", "te", "vo", "zi", "da",
+        "fe", "go", "hu", "ja", "ki", "la", "mo", "nu", "pe", "ri",
+        "so", "tu", "va", "we", "xo", "ya", "bo", "ce", "di", "fu",
+        "ga", "he", "io", "lu", "ma", "no", "pa", "qu", "re", "si"};
+    private static final int WORDS = 1000;
+
+    // Three words from a 1000-word vocabulary, e.g. "Kalo Mira Tesu". Multiplying by an odd
+    // constant not divisible by 5 permutes 0..10^9-1, so every ordinal gets a distinct title
+    // while neighbouring ordinals share no prefix.
+    static String title(int ordinal) {
+        long mixed = ordinal * 2654435761L % ((long) WORDS * WORDS * WORDS);
+        return word((int) (mixed / (WORDS * WORDS))) + " "
+            + word((int) (mixed / WORDS % WORDS)) + " "
+            + word((int) (mixed % WORDS));
+    }
+
+    private static String word(int index) {
+        String word = SYLLABLES[index / SYLLABLES.length % SYLLABLES.length]
+            + SYLLABLES[index % SYLLABLES.length];
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    static String user(int id) {
+        return "user" + id;
+    }
+
+    static ZipReelService service(int catalogSize, int users, InvalidationMode mode) {
+        return fill(new ZipReelService(mode), catalogSize, users);
+    }
+
+    static ZipReelService service(int catalogSize, int users, InvalidationMode mode, Executor searchExecutor) {
+        return fill(new ZipReelService(mode, ZipReelService.DEFAULT_PARALLEL_SCAN_THRESHOLD, searchExecutor),
+            catalogSize, users);
+    }
+
+    private static ZipReelService fill(ZipReelService service, int catalogSize, int users) {
+        quietly(() -> {
+            for (int u = 0; u < users; u++) {
+                service.addUser(user(u), "User " + u, genre(u % GENRES));
+            }
+            addMovies(service, 0, catalogSize);
+        });
+        return service;
+    }
+
+    static void addMovies(ZipReelService service, int from, int to) {
+        SplittableRandom random = new SplittableRandom(from);
+        for (int i = from; i < to; i++) {
+            service.addMovie("m" + i, title(i), genre(random.nextInt(GENRES)),
+                FIRST_YEAR + random.nextInt(YEARS), random.nextInt(101) / 10.0);
+        }
+    }
+
+    static void clearCaches(ZipReelService service) {
+        quietly(() -> {
+            service.clearCache(CacheLevel.L1);
+            service.clearCache(CacheLevel.L2);
+        });
+    }
+
+    // addMovie, addUser and clearCache report every call on stdout, which would swamp the
+    // JMH output.
+    static void quietly(Runnable action) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            action.run();
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
@@ -0,0 +1,3494 @@
+package zipreel;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+enum CacheLevel {
+    L1,
+    L2,
+    PRIMARY_STORE
+}
+
+enum InvalidationMode {
+    EVICT,
+    PATCH
+}
+
+enum ResultOrder {
+    CATALOG,
+    RATING
+}
+
+enum SearchType {
+    TITLE,
+    GENRE,
+    YEAR,
+    YEAR_RANGE,
+    RATING_AT_LEAST,
+    TITLE_PREFIX,
+    TITLE_FUZZY,
+    FULL_TEXT
+}
+
+// Process-wide ids for genre names. A catalog has a few dozen genres, so movies, users and
+// search keys hold a small int, genre predicates compare ints, and each name is stored
+// once. Only catalog writes (movies and users) register names; searches just look them
+// up, so arbitrary search input never grows the dictionary.
+final class GenreDictionary {
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final ReentrantLock REGISTRATION = new ReentrantLock();
+    private static volatile String[] names = new String[16];
+
+    private GenreDictionary() {
+    }
+
+    public static int idOf(String genre) {
+        Integer id = IDS.get(genre);
+        return id != null ? id : register(genre);
+    }
+
+    // The registered id, or for an unknown name a negative id derived from it. No movie
+    // has a negative id, so such a search matches nothing, and any two unknown names that
+    // share one share the same empty answer. Once a movie registers the name, searches
+    // resolve to its real id.
+    public static int lookup(String genre) {
+        Integer id = IDS.get(genre);
+        return id != null ? id : -1 - (genre.hashCode() & Integer.MAX_VALUE);
+    }
+
+    public static String nameOf(int id) {
+        return names[id];
+    }
+
+    // The name is published before its id, so nameOf never sees an id it cannot resolve.
+    private static int register(String genre) {
+        REGISTRATION.lock();
+        try {
+            Integer existing = IDS.get(genre);
+            if (existing != null) {
+                return existing;
+            }
+            int id = IDS.size();
+            String[] current = names;
+            if (id == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[id] = genre;
+            names = current;
+            IDS.put(genre, id);
+            return id;
+        } finally {
+            REGISTRATION.unlock();
+        }
+    }
+}
+
+class Movie {
+    // Highest rated first; ties keep catalog order so pages are stable.
+    static final Comparator<Movie> BY_RATING = Comparator.comparingDouble(Movie::getRating).reversed()
+        .thenComparingInt(Movie::getOrdinal);
+
+    private final String id;
+    private final String title;
+    private final int genreId;
+    private final int year;
+    private final double rating;
+    private final int ordinal;
+
+    public Movie(String id, String title, String genre, int year, double rating, int ordinal) {
+        this.id = id;
+        this.title = title;
+        this.genreId = GenreDictionary.idOf(genre);
+        this.year = year;
+        this.rating = rating;
+        this.ordinal = ordinal;
+    }
+
+    public String getId() { return id; }
+    public String getTitle() { return title; }
+    public String getGenre() { return GenreDictionary.nameOf(genreId); }
+    public int getGenreId() { return genreId; }
+    public int getYear() { return year; }
+    public double getRating() { return rating; }
+    public int getOrdinal() { return ordinal; }
+}
+
+// Dense, append-only table of every movie by ordinal. Appends happen under the catalog
+// write lock; readers only ever ask for ordinals that were published before they looked.
+class MovieTable {
+    private volatile Movie[] movies = new Movie[16];
+    private volatile int size;
+
+    public int size() { return size; }
+
+    public Movie get(int ordinal) {
+        return movies[ordinal];
+    }
+
+    public void append(Movie movie) {
+        Movie[] current = movies;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = movie;
+        movies = current;
+        size = size + 1;
+    }
+}
+
+// The catalog again, one primitive column per scanned attribute, so predicate scans read
+// packed arrays instead of chasing Movie pointers. Genres are GenreDictionary ids. Appended
+// under the catalog write lock and scanned under the read lock.
+class MovieColumns {
+    private static final int SCAN_BLOCK = 4096;
+
+    private int[] years = new int[16];
+    private double[] ratings = new double[16];
+    private int[] genres = new int[16];
+    private int size;
+
+    public int size() { return size; }
+    public double rating(int ordinal) { return ratings[ordinal]; }
+
+    public void append(Movie movie) {
+        if (size == years.length) {
+            years = Arrays.copyOf(years, size * 2);
+            ratings = Arrays.copyOf(ratings, size * 2);
+            genres = Arrays.copyOf(genres, size * 2);
+        }
+        years[size] = movie.getYear();
+        ratings[size] = movie.getRating();
+        genres[size] = movie.getGenreId();
+        size++;
+    }
+
+    // Ordinals of the movies with the genre and year rated at least minRating, in catalog
+    // order. The inner loop is branch-free: every row writes its ordinal and only a match
+    // advances the cursor, so selectivity never causes mispredictions.
+    public int[] scan(int genreId, int year, double minRating) {
+        return scan(years, ratings, genres, genreId, year, minRating, 0, size);
+    }
+
+    // The same scan split across the common fork-join pool, a few partitions per core so
+    // uneven partitions still balance. Partitions are joined back in catalog order.
+    public int[] parallelScan(int genreId, int year, double minRating) {
+        int partitions = ForkJoinPool.getCommonPoolParallelism() * 4;
+        int partitionRows = Math.max(SCAN_BLOCK, (size + partitions - 1) / partitions);
+        return ForkJoinPool.commonPool().invoke(
+            new ScanTask(years, ratings, genres, genreId, year, minRating, 0, size, partitionRows));
+    }
+
+    private static int[] scan(int[] years, double[] ratings, int[] genres, int genreId, int year,
+                              double minRating, int from, int to) {
+        int[] block = new int[SCAN_BLOCK + 1];
+        int[] matches = new int[16];
+        int count = 0;
+        for (int start = from; start < to; start += SCAN_BLOCK) {
+            int end = Math.min(to, start + SCAN_BLOCK);
+            int found = 0;
+            for (int i = start; i < end; i++) {
+                block[found] = i;
+                found += (genres[i] == genreId) & (years[i] == year) & (ratings[i] >= minRating) ? 1 : 0;
+            }
+            if (count + found > matches.length) {
+                matches = Arrays.copyOf(matches, Math.max(matches.length * 2, count + found));
+            }
+            System.arraycopy(block, 0, matches, count, found);
+            count += found;
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    // Halves its row range until it is at most partitionRows, then scans it sequentially.
+    // The forking thread holds the catalog read lock until invoke returns, so no append
+    // runs while the workers read the columns. Static, so tasks hold just the three column
+    // arrays rather than the MovieColumns that grows them.
+    private static final class ScanTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] years;
+        private final double[] ratings;
+        private final int[] genres;
+        private final int genreId;
+        private final int year;
+        private final double minRating;
+        private final int from;
+        private final int to;
+        private final int partitionRows;
+
+        ScanTask(int[] years, double[] ratings, int[] genres, int genreId, int year, double minRating,
+                 int from, int to, int partitionRows) {
+            this.years = years;
+            this.ratings = ratings;
+            this.genres = genres;
+            this.genreId = genreId;
+            this.year = year;
+            this.minRating = minRating;
+            this.from = from;
+            this.to = to;
+            this.partitionRows = partitionRows;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= partitionRows) {
+                return scan(years, ratings, genres, genreId, year, minRating, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(years, ratings, genres, genreId, year, minRating, from, middle, partitionRows);
+            ScanTask right = new ScanTask(years, ratings, genres, genreId, year, minRating, middle, to, partitionRows);
+            left.fork();
+            int[] upper = right.compute();
+            int[] lower = left.join();
+            int[] joined = Arrays.copyOf(lower, lower.length + upper.length);
+            System.arraycopy(upper, 0, joined, lower.length, upper.length);
+            return joined;
+        }
+    }
+}
+
+class User {
+    private final String id;
+    private final String name;
+    private final int preferredGenreId;
+
+    public User(String id, String name, String preferredGenre) {
+        this.id = id;
+        this.name = name;
+        this.preferredGenreId = GenreDictionary.idOf(preferredGenre);
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public String getPreferredGenre() { return GenreDictionary.nameOf(preferredGenreId); }
+    public int getPreferredGenreId() { return preferredGenreId; }
+}
+
+// Cache key for one search. The hash is computed once at construction, so lookups in both
+// cache levels cost a field read instead of building and hashing a string.
+abstract class SearchKey {
+    private final int hash;
+
+    protected SearchKey(int hash) {
+        this.hash = hash;
+    }
+
+    public static SearchKey of(SearchType searchType, String searchValue) {
+        switch (searchType) {
+            case TITLE:
+                return new TitleKey(searchValue);
+            case GENRE:
+                return new GenreKey(searchValue);
+            case YEAR:
+                try {
+                    return new YearKey(Integer.parseInt(searchValue));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid year: " + searchValue);
+                }
+            case YEAR_RANGE:
+                return YearRangeKey.parse(searchValue);
+            case RATING_AT_LEAST:
+                try {
+                    return new RatingAtLeastKey(Double.parseDouble(searchValue));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid rating: " + searchValue);
+                }
+            case TITLE_PREFIX:
+                return new TitlePrefixKey(searchValue);
+            case TITLE_FUZZY:
+                return TitleFuzzyKey.parse(searchValue);
+            case FULL_TEXT:
+                return FullTextKey.parse(searchValue);
+            default:
+                throw new IllegalArgumentException("Unsupported search type: " + searchType);
+        }
+    }
+
+    // The dependencies of every cached search a newly added movie could change.
+    public static List<SearchKey> dependenciesOf(Movie movie) {
+        return List.of(
+            new TitleKey(movie.getTitle()),
+            new GenreKey(movie.getGenreId()),
+            new YearKey(movie.getYear()),
+            new MultiKey(movie.getGenreId(), movie.getYear(), Double.NEGATIVE_INFINITY),
+            YearRangeKey.ALL,
+            RatingAtLeastKey.ALL,
+            TitlePrefixKey.ALL,
+            TitleFuzzyKey.ALL,
+            FullTextKey.ALL);
+    }
+
+    public abstract boolean matches(Movie movie);
+
+    // Ranked answers are in relevance order rather than catalog order, and their scores
+    // depend on the whole catalog, so they cannot be patched or derived from other answers.
+    public boolean isRanked() {
+        return false;
+    }
+
+    // Whether adding the movie can change this search's cached answer.
+    public boolean isAffectedBy(Movie movie) {
+        return matches(movie);
+    }
+
+    // Single-attribute searches whose answers contain this one; a cached component answer
+    // can be filtered down instead of going to the primary store.
+    public List<SearchKey> components() {
+        return List.of();
+    }
+
+    // Whether every movie matching the other search also matches this one, so this search's
+    // cached answer can be filtered down to the other's.
+    public boolean contains(SearchKey other) {
+        return equals(other);
+    }
+
+    // The catalog value this search was computed from; entries are invalidated or patched
+    // by dependency when a movie is added.
+    public SearchKey dependency() {
+        return this;
+    }
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+}
+
+class TitleKey extends SearchKey {
+    private final String title;
+
+    public TitleKey(String title) {
+        super(31 * SearchType.TITLE.ordinal() + title.hashCode());
+        this.title = title;
+    }
+
+    public String getTitle() { return title; }
+
+    @Override
+    public boolean matches(Movie movie) {
+        return movie.getTitle().equals(title);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TitleKey && o.hashCode() == hashCode() && ((TitleKey) o).title.equals(title);
+    }
+
+    @Override
+    public String toString() {
+        return "TITLE:" + title;
+    }
+}
+
+class GenreKey extends SearchKey {
+    private final int genreId;
+    private final String genre;
+
+    public GenreKey(String genre) {
+        this(GenreDictionary.lookup(genre), genre);
+    }
+
+    // For registered ids only, e.g. a catalog movie's genre.
+    public GenreKey(int genreId) {
+        this(genreId, GenreDictionary.nameOf(genreId));
+    }
+
+    GenreKey(int genreId, String genre) {
+        super(31 * SearchType.GENRE.ordinal() + genreId);
+        this.genreId = genreId;
+        this.genre = genre;
+    }
+
+    public String getGenre() { return genre; }
+    public int getGenreId() { return genreId; }
+
+    @Override
+    public boolean matches(Movie movie) {
+        return movie.getGenreId() == genreId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GenreKey && ((GenreKey) o).genreId == genreId;
+    }
+
+    @Override
+    public String toString() {
+        return "GENRE:" + genre;
+    }
+}
+
+class YearKey extends SearchKey {
+    private final int year;
+
+    public YearKey(int year) {
+        super(31 * SearchType.YEAR.ordinal() + year);
+        this.year = year;
+    }
+
+    public int getYear() { return year; }
+
+    @Override
+    public boolean matches(Movie movie) {
+        return movie.getYear() == year;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof YearKey && ((YearKey) o).year == year;
+    }
+
+    @Override
+    public String toString() {
+        return "YEAR:" + year;
+    }
+}
+
+class YearRangeKey extends SearchKey {
+    // Every year range depends on this one, so an insert reaches all cached ranges and
+    // only the ranges the new movie's year falls in are touched.
+    static final YearRangeKey ALL = new YearRangeKey(Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    private final int fromYear;
+    private final int toYear;
+
+    public YearRangeKey(int fromYear, int toYear) {
+        super(31 * (31 * SearchType.YEAR_RANGE.ordinal() + fromYear) + toYear);
+        if (fromYear > toYear) {
+            throw new IllegalArgumentException("Invalid year range: " + fromYear + "-" + toYear);
+        }
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+    }
+
+    // Parses an inclusive "from-to" range such as "2000-2010".
+    public static YearRangeKey parse(String value) {
+        String[] bounds = value.split("-");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("Invalid year range: " + value);
+        }
+        try {
+            return new YearRangeKey(Integer.parseInt(bounds[0].trim()), Integer.parseInt(bounds[1].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid year range: " + value);
+        }
+    }
+
+    public int getFromYear() { return fromYear; }
+    public int getToYear() { return toYear; }
+
+    @Override
+    public boolean matches(Movie movie) {
+        return movie.getYear() >= fromYear && movie.getYear() <= toYear;
+    }
+
+    @Override
+    public boolean contains(SearchKey other) {
+        return other instanceof YearRangeKey
+            && ((YearRangeKey) other).fromYear >= fromYear
+            && ((YearRangeKey) other).toYear <= toYear;
+    }
+
+    @Override
+    public SearchKey dependency() {
+        return ALL;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof YearRangeKey && ((YearRangeKey) o).fromYear == fromYear && ((YearRangeKey) o).toYear == toYear;
+    }
+
+    @Override
+    public String toString() {
+        return "YEAR_RANGE:" + fromYear + "-" + toYear;
+    }
+}
+
+class RatingAtLeastKey extends SearchKey {
+    static final RatingAtLeastKey ALL = new RatingAtLeastKey(Double.NEGATIVE_INFINITY);
+
+    private final double minRating;
+
+    public RatingAtLeastKey(double minRating) {
+        super(31 * SearchType.RATING_AT_LEAST.ordinal() + Double.hashCode(minRating));
+        this.minRating = minRating;
+    }
+
+    public double getMinRating() { return minRating; }
+
+    @Override
+    public boolean matches(Movie movie) {
+        return movie.getRating() >= minRating;
+    }
+
+    @Override
+    public boolean contains(SearchKey other) {
+        return other instanceof RatingAtLeastKey && ((RatingAtLeastKey) other).minRating >= minRating;
+    }
+
+    @Override
+    public SearchKey dependency() {
+        return ALL;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RatingAtLeastKey && Double.compare(((RatingAtLeastKey) o).minRating, minRating) == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "RATING_AT_LEAST:" + minRating;
+    }
+}
+
+// Title normalization and matching shared by the prefix and fuzzy title searches and
+// their indexes.
+final class TitleText {
+    private TitleText() {
+    }
+
+    public static String normalize(String title) {
+        return title.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Distinct three-character substrings of a normalized title.
+    public static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    // Fewest edits turning the query into some substring of the text, so "dark knigt" is
+    // one edit from "the dark knight". Gives up once every alignment exceeds maxEdits.
+    public static int substringDistance(String query, String text, int maxEdits) {
+        int[] previous = new int[text.length() + 1];
+        int[] current = new int[text.length() + 1];
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= text.length(); j++) {
+                int substitute = previous[j - 1] + (query.charAt(i - 1) == text.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return rowMin;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = query.length();
+        for (int distance : previous) {
+            best = Math.min(best, distance);
+        }
+        return best;
+    }
+}
+
+class TitlePrefixKey extends SearchKey {
+    static final TitlePrefixKey ALL = new TitlePrefixKey("");
+
+    private final String prefix;
+
+    // Case-insensitive, so "incep" and "Incep" share one cache entry.
+    public TitlePrefixKey(String prefix) {
+        super(31 * SearchType.TITLE_PREFIX.ordinal() + TitleText.normalize(prefix).hashCode());
+        this.prefix = TitleText.normalize(prefix);
+    }
+
+    public String getPrefix() { return prefix; }
+
+    @Override
+    public boolean matches(Movie movie) {
+        return TitleText.normalize(movie.getTitle()).startsWith(prefix);
+    }
+
+    @Override
+    public boolean contains(SearchKey other) {
+        return other instanceof TitlePrefixKey && ((TitlePrefixKey) other).prefix.startsWith(prefix);
+    }
+
+    @Override
+    public SearchKey dependency() {
+        return ALL;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TitlePrefixKey && ((TitlePrefixKey) o).prefix.equals(prefix);
+    }
+
+    @Override
+    public String toString() {
+        return "TITLE_PREFIX:" + prefix;
+    }
+}
+
+class TitleFuzzyKey extends SearchKey {
+    static final TitleFuzzyKey ALL = new TitleFuzzyKey("");
+
+    private final String query;
+    private final int maxEdits;
+
+    private TitleFuzzyKey(String query) {
+        super(31 * SearchType.TITLE_FUZZY.ordinal() + query.hashCode());
+        this.query = query;
+        // One typo per six characters; short queries must match a substring exactly.
+        this.maxEdits = query.length() / 6;
+    }
+
+    // The trigram index must be able to narrow the candidates: a title within maxEdits still
+    // shares at least distinct - 3 * maxEdits of the query's trigrams, and a query too short
+    // or repetitive ("aaaaaaaaaaaa") for that bound to be positive would scan every title.
+    public static TitleFuzzyKey parse(String value) {
+        String query = TitleText.normalize(value);
+        if (query.length() < 3) {
+            throw new IllegalArgumentException("Fuzzy title query too short: " + value);
+        }
+        TitleFuzzyKey key = new TitleFuzzyKey(query);
+        if (key.requiredTrigrams() <= 0) {
+            throw new IllegalArgumentException("Fuzzy title query too repetitive: " + value);
+        }
+        return key;
+    }
+
+    public String getQuery() { return query; }
+    public int getMaxEdits() { return maxEdits; }
+
+    // Each edit breaks at most three of the query's trigrams.
+    public int requiredTrigrams() {
+        return TitleText.trigrams(query).size() - 3 * maxEdits;
+    }
+
+    @Override
+    public boolean matches(Movie movie) {
+        return TitleText.substringDistance(query, TitleText.normalize(movie.getTitle()), maxEdits) <= maxEdits;
+    }
+
+    @Override
+    public SearchKey dependency() {
+        return ALL;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TitleFuzzyKey && ((TitleFuzzyKey) o).query.equals(query);
+    }
+
+    @Override
+    public String toString() {
+        return "TITLE_FUZZY:" + query;
+    }
+}
+
+// Free-form query over titles and genres, e.g. "dark knight action". The key is the query's
+// distinct terms in sorted order, so word order, case and punctuation share one entry.
+// Answers are ranked by BM25; ResultOrder.CATALOG pages through them in relevance order.
+// The key also holds how many of the best matches to rank: every match for a parsed
+// query, or just enough for one CATALOG page (see forPage).
+class FullTextKey extends SearchKey {
+    static final FullTextKey ALL = new FullTextKey(List.of(), Integer.MAX_VALUE);
+    // A search box shows the best few results, so the first pages share one answer this
+    // deep rather than ranking and caching the whole tail of a genre-wide match.
+    static final int MIN_DEPTH = 1000;
+
+    private final List<String> terms;
+    private final int depth;
+
+    private FullTextKey(List<String> terms, int depth) {
+        super(31 * (31 * SearchType.FULL_TEXT.ordinal() + terms.hashCode()) + depth);
+        this.terms = terms;
+        this.depth = depth;
+    }
+
+    public static FullTextKey parse(String query) {
+        List<String> terms = List.copyOf(new TreeSet<>(FullTextIndex.tokenize(query)));
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Empty full-text query: " + query);
+        }
+        return new FullTextKey(terms, Integer.MAX_VALUE);
+    }
+
+    // The same query ranked just deep enough for one page: MIN_DEPTH, or the next power of
+    // two past the page's end, so nearby pages share an answer. RATING order picks from
+    // every match, so it keeps the full ranking.
+    public FullTextKey forPage(ResultOrder order, int offset, int limit) {
+        long end = (long) offset + limit;
+        if (order == ResultOrder.RATING || end > 1 << 30) {
+            return this;
+        }
+        int pageDepth = end <= MIN_DEPTH ? MIN_DEPTH : Integer.highestOneBit((int) end - 1) << 1;
+        return pageDepth < depth ? new FullTextKey(terms, pageDepth) : this;
+    }
+
+    public List<String> getTerms() { return terms; }
+    public int getDepth() { return depth; }
+
+    @Override
+    public boolean matches(Movie movie) {
+        for (String token : FullTextIndex.tokenize(movie.getTitle() + " " + movie.getGenre())) {
+            if (terms.contains(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isRanked() {
+        return true;
+    }
+
+    // Every insert changes the document count and average length behind each score.
+    @Override
+    public boolean isAffectedBy(Movie movie) {
+        return true;
+    }
+
+    @Override
+    public SearchKey dependency() {
+        return ALL;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FullTextKey && ((FullTextKey) o).terms.equals(terms) && ((FullTextKey) o).depth == depth;
+    }
+
+    @Override
+    public String toString() {
+        return "FULL_TEXT:" + String.join(" ", terms) + (depth == Integer.MAX_VALUE ? "" : ":top" + depth);
+    }
+}
+
+class MultiKey extends SearchKey {
+    private final int genreId;
+    private final String genre;
+    private final int year;
+    private final double minRating;
+
+    public MultiKey(String genre, int year, double minRating) {
+        this(GenreDictionary.lookup(genre), genre, year, minRating);
+    }
+
+    // For registered ids only, e.g. a catalog movie's genre.
+    public MultiKey(int genreId, int year, double minRating) {
+        this(genreId, GenreDictionary.nameOf(genreId), year, minRating);
+    }
+
+    private MultiKey(int genreId, String genre, int year, double minRating) {
+        super(hash(genreId, year, minRating));
+        this.genreId = genreId;
+        this.genre = genre;
+        this.year = year;
+        this.minRating = minRating;
+    }
+
+    public String getGenre() { return genre; }
+    public int getGenreId() { return genreId; }
+    public int getYear() { return year; }
+    public double getMinRating() { return minRating; }
+
+    @Override
+    public boolean matches(Movie movie) {
+        return movie.getGenreId() == genreId && movie.getYear() == year && movie.getRating() >= minRating;
+    }
+
+    @Override
+    public List<SearchKey> components() {
+        return List.of(new GenreKey(genreId, genre), new YearKey(year));
+    }
+
+    @Override
+    public boolean contains(SearchKey other) {
+        if (!(other instanceof MultiKey)) {
+            return false;
+        }
+        MultiKey multi = (MultiKey) other;
+        return multi.year == year && multi.genreId == genreId && minRating <= multi.minRating;
+    }
+
+    // Every rating threshold for a genre and year depends on the unfiltered combination.
+    @Override
+    public SearchKey dependency() {
+        return minRating == Double.NEGATIVE_INFINITY ? this : new MultiKey(genreId, genre, year, Double.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof MultiKey) || o.hashCode() != hashCode()) {
+            return false;
+        }
+        MultiKey other = (MultiKey) o;
+        return other.year == year && other.genreId == genreId && Double.compare(other.minRating, minRating) == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MULTI:%s:%d:%.1f", genre, year, minRating);
+    }
+
+    private static int hash(int genreId, int year, double minRating) {
+        int h = genreId;
+        h = 31 * h + year;
+        return 31 * h + Double.hashCode(minRating);
+    }
+}
+
+class SearchResult {
+    private final Movie movie;
+    private final CacheLevel foundIn;
+
+    public SearchResult(Movie movie, CacheLevel foundIn) {
+        this.movie = movie;
+        this.foundIn = foundIn;
+    }
+
+    public Movie getMovie() { return movie; }
+    public CacheLevel getFoundIn() { return foundIn; }
+
+    @Override
+    public String toString() {
+        return String.format("%s (Found in %s)", movie.getTitle(), foundIn);
+    }
+}
+
+// Read-only response view over a cached result list; wrappers are created only for the
+// elements a caller actually reads.
+class SearchResultList extends AbstractList<SearchResult> implements RandomAccess {
+    private final List<Movie> movies;
+    private final CacheLevel foundIn;
+
+    public SearchResultList(List<Movie> movies, CacheLevel foundIn) {
+        this.movies = movies;
+        this.foundIn = foundIn;
+    }
+
+    @Override
+    public SearchResult get(int index) {
+        return new SearchResult(movies.get(index), foundIn);
+    }
+
+    @Override
+    public Iterator<SearchResult> iterator() {
+        Iterator<Movie> it = movies.iterator();
+        return new Iterator<SearchResult>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public SearchResult next() {
+                return new SearchResult(it.next(), foundIn);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return movies.size();
+    }
+}
+
+// Compressed set of movie ordinals in the style of a Roaring bitmap: ordinals are grouped by
+// their high 16 bits, and each group is a sorted char array while sparse or a 1024-word
+// bitset once it holds more than 4096 values. Results of and/or may share containers with
+// their inputs and are meant to be read, not added to.
+class OrdinalBitmap {
+    private int[] highs = new int[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public void add(int ordinal) {
+        int high = ordinal >>> 16;
+        int index = size > 0 && highs[size - 1] == high ? size - 1 : Arrays.binarySearch(highs, 0, size, high);
+        if (index < 0) {
+            index = -index - 1;
+            if (size == highs.length) {
+                highs = Arrays.copyOf(highs, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            System.arraycopy(highs, index, highs, index + 1, size - index);
+            System.arraycopy(containers, index, containers, index + 1, size - index);
+            highs[index] = high;
+            containers[index] = new ArrayContainer();
+            size++;
+        }
+        containers[index] = containers[index].add((char) ordinal);
+    }
+
+    public boolean contains(int ordinal) {
+        int index = Arrays.binarySearch(highs, 0, size, ordinal >>> 16);
+        return index >= 0 && containers[index].contains((char) ordinal);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    // Intersects any number of bitmaps, smallest first so the running result shrinks fastest.
+    public static OrdinalBitmap and(OrdinalBitmap... bitmaps) {
+        OrdinalBitmap[] sorted = bitmaps.clone();
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+        OrdinalBitmap result = sorted[0];
+        for (int i = 1; i < sorted.length && result.size > 0; i++) {
+            result = result.and(sorted[i]);
+        }
+        return result;
+    }
+
+    public OrdinalBitmap and(OrdinalBitmap other) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (highs[i] < other.highs[j]) {
+                i++;
+            } else if (highs[i] > other.highs[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.append(highs[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Copies the ordinals in [from, limit) into out in ascending order, stopping once out is
+    // full, and returns how many were copied. Ordinals are only ever added above the current
+    // maximum, so a reader resuming one past the last ordinal it copied sees each ordinal
+    // exactly once even if the bitmap grew in between.
+    public int copyRange(int from, int limit, int[] out) {
+        int index = Arrays.binarySearch(highs, 0, size, from >>> 16);
+        int count = 0;
+        for (index = index < 0 ? -index - 1 : index; index < size && count < out.length; index++) {
+            int base = highs[index] << 16;
+            if (base >= limit) {
+                break;
+            }
+            count = containers[index].copyRange(Math.max(from - base, 0), Math.min(limit - base, 1 << 16), out, count, base);
+        }
+        return count;
+    }
+
+    // Unions any number of bitmaps, e.g. one per title under a prefix. Every input chunk is
+    // OR-ed into a single mutable word array per chunk of the result, so the cost is the
+    // inputs' total size plus one pass per result chunk, not a copy of the running union
+    // per input.
+    public static OrdinalBitmap or(Iterable<OrdinalBitmap> bitmaps) {
+        long[][] chunks = new long[0][];
+        for (OrdinalBitmap bitmap : bitmaps) {
+            for (int i = 0; i < bitmap.size; i++) {
+                int high = bitmap.highs[i];
+                if (high >= chunks.length) {
+                    chunks = Arrays.copyOf(chunks, Math.max(high + 1, chunks.length * 2));
+                }
+                if (chunks[high] == null) {
+                    chunks[high] = new long[BitmapContainer.WORDS];
+                }
+                bitmap.containers[i].orInto(chunks[high]);
+            }
+        }
+        OrdinalBitmap result = new OrdinalBitmap();
+        for (int high = 0; high < chunks.length; high++) {
+            if (chunks[high] != null) {
+                result.append(high, Container.of(chunks[high]));
+            }
+        }
+        return result;
+    }
+
+    public OrdinalBitmap or(OrdinalBitmap other) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && highs[i] < other.highs[j])) {
+                result.append(highs[i], containers[i]);
+                i++;
+            } else if (i == size || highs[i] > other.highs[j]) {
+                result.append(other.highs[j], other.containers[j]);
+                j++;
+            } else {
+                result.append(highs[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public int[] toArray() {
+        int[] ordinals = new int[cardinality()];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            offset = containers[i].copyTo(ordinals, offset, highs[i] << 16);
+        }
+        return ordinals;
+    }
+
+    private void append(int high, Container container) {
+        if (size == highs.length) {
+            highs = Arrays.copyOf(highs, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        highs[size] = high;
+        containers[size] = container;
+        size++;
+    }
+
+    private abstract static class Container {
+        // The smaller representation of a chunk's bits; takes ownership of the words.
+        static Container of(long[] words) {
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality > ArrayContainer.MAX_SIZE) {
+                return new BitmapContainer(words, cardinality);
+            }
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[Math.max(4, cardinality)];
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    array.values[array.cardinality++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return array;
+        }
+
+        abstract Container add(char low);
+        abstract boolean contains(char low);
+        abstract int cardinality();
+        abstract Container and(Container other);
+        abstract Container or(Container other);
+        abstract void orInto(long[] words);
+        abstract int copyTo(int[] out, int offset, int base);
+        // Copies the values in [fromLow, toLow) until out is full; returns the new offset.
+        abstract int copyRange(int fromLow, int toLow, int[] out, int offset, int base);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private static final int MAX_SIZE = 4096;
+
+        private char[] values = new char[4];
+        private int cardinality;
+
+        @Override
+        Container add(char low) {
+            int index = cardinality > 0 && values[cardinality - 1] < low
+                ? -cardinality - 1
+                : Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == MAX_SIZE) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(MAX_SIZE, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            ArrayContainer result = new ArrayContainer();
+            result.values = new char[cardinality];
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result.values[result.cardinality++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result.values[result.cardinality++] = values[i];
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] merged = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    merged[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    merged[count++] = array.values[j++];
+                } else {
+                    merged[count++] = values[i++];
+                    j++;
+                }
+            }
+            ArrayContainer result = new ArrayContainer();
+            result.values = merged;
+            result.cardinality = count;
+            return count > MAX_SIZE ? result.toBitmap() : result;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+        }
+
+        @Override
+        int copyRange(int fromLow, int toLow, int[] out, int offset, int base) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) fromLow);
+            for (i = i < 0 ? -i - 1 : i; i < cardinality && values[i] < toLow && offset < out.length; i++) {
+                out[offset++] = base | values[i];
+            }
+            return offset;
+        }
+
+        @Override
+        int copyTo(int[] out, int offset, int base) {
+            for (int i = 0; i < cardinality; i++) {
+                out[offset++] = base | values[i];
+            }
+            return offset;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        static final int WORDS = 1024;
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (!(other instanceof BitmapContainer)) {
+                return other.and(this);
+            }
+            BitmapContainer result = new BitmapContainer();
+            long[] otherWords = ((BitmapContainer) other).words;
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] = words[i] & otherWords[i];
+                result.cardinality += Long.bitCount(result.words[i]);
+            }
+            return result;
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = new BitmapContainer();
+            System.arraycopy(words, 0, result.words, 0, words.length);
+            result.cardinality = cardinality;
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                result.cardinality = 0;
+                for (int i = 0; i < words.length; i++) {
+                    result.words[i] |= otherWords[i];
+                    result.cardinality += Long.bitCount(result.words[i]);
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.add(array.values[i]);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        void orInto(long[] other) {
+            for (int i = 0; i < words.length; i++) {
+                other[i] |= words[i];
+            }
+        }
+
+        @Override
+        int copyRange(int fromLow, int toLow, int[] out, int offset, int base) {
+            for (int i = fromLow >>> 6; i < words.length && offset < out.length; i++) {
+                long word = i == fromLow >>> 6 ? words[i] & -1L << fromLow : words[i];
+                while (word != 0 && offset < out.length) {
+                    int low = (i << 6) | Long.numberOfTrailingZeros(word);
+                    if (low >= toLow) {
+                        return offset;
+                    }
+                    out[offset++] = base | low;
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+
+        @Override
+        int copyTo(int[] out, int offset, int base) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    out[offset++] = base | (i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+    }
+}
+
+// Inverted index for FULL_TEXT search over each movie's title and genre. Postings are
+// parallel int arrays of ordinals and term frequencies, appended in catalog order.
+// Callers hold the catalog lock: the write lock to add, the read lock to search.
+class FullTextIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Map<String, Postings> index = new HashMap<>();
+    private int[] documentLengths = new int[16];
+    private int documents;
+    private long totalLength;
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    public void add(Movie movie) {
+        List<String> tokens = tokenize(movie.getTitle() + " " + movie.getGenre());
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            index.computeIfAbsent(term.getKey(), k -> new Postings()).add(movie.getOrdinal(), term.getValue());
+        }
+        if (movie.getOrdinal() >= documentLengths.length) {
+            documentLengths = Arrays.copyOf(documentLengths, Math.max(documentLengths.length * 2, movie.getOrdinal() + 1));
+        }
+        documentLengths[movie.getOrdinal()] = tokens.size();
+        documents++;
+        totalLength += tokens.size();
+    }
+
+    // Ordinals of the best depth movies containing any of the terms, best BM25 score
+    // first; ties keep catalog order. The terms' postings are merged by ordinal, so scores
+    // accumulate in primitive arrays sized by the matches, not by the catalog.
+    public int[] search(List<String> terms, int depth) {
+        Postings[] lists = new Postings[terms.size()];
+        int listCount = 0;
+        int total = 0;
+        for (String term : terms) {
+            Postings postings = index.get(term);
+            if (postings != null) {
+                lists[listCount++] = postings;
+                total += postings.size;
+            }
+        }
+        double averageLength = documents == 0 ? 0 : (double) totalLength / documents;
+        double[] idfs = new double[listCount];
+        for (int k = 0; k < listCount; k++) {
+            idfs[k] = Math.log(1 + (documents - lists[k].size + 0.5) / (lists[k].size + 0.5));
+        }
+
+        int[] matched = new int[total];
+        double[] scores = new double[total];
+        int count = 0;
+        int[] cursors = new int[listCount];
+        while (true) {
+            int next = Integer.MAX_VALUE;
+            for (int k = 0; k < listCount; k++) {
+                if (cursors[k] < lists[k].size) {
+                    next = Math.min(next, lists[k].ordinals[cursors[k]]);
+                }
+            }
+            if (next == Integer.MAX_VALUE) {
+                break;
+            }
+            double norm = K1 * (1 - B + B * documentLengths[next] / averageLength);
+            double score = 0;
+            for (int k = 0; k < listCount; k++) {
+                Postings postings = lists[k];
+                if (cursors[k] < postings.size && postings.ordinals[cursors[k]] == next) {
+                    int frequency = postings.frequencies[cursors[k]++];
+                    score += idfs[k] * frequency * (K1 + 1) / (frequency + norm);
+                }
+            }
+            matched[count] = next;
+            scores[count++] = score;
+        }
+        return rank(matched, scores, count, depth);
+    }
+
+    // The best limit matches, best first. A bounded min-heap of int positions keeps the
+    // current top results with the weakest at the root, so ranking boxes nothing and costs
+    // O(matches * log limit).
+    private static int[] rank(int[] matched, double[] scores, int count, int limit) {
+        int size = Math.min(count, limit);
+        int[] heap = new int[size];
+        int filled = 0;
+        for (int i = 0; i < count; i++) {
+            if (filled < size) {
+                heap[filled] = i;
+                siftUp(heap, filled++, matched, scores);
+            } else if (ranksBefore(i, heap[0], matched, scores)) {
+                heap[0] = i;
+                siftDown(heap, 0, size, matched, scores);
+            }
+        }
+        int[] ranked = new int[size];
+        for (int remaining = size; remaining > 0; remaining--) {
+            ranked[remaining - 1] = matched[heap[0]];
+            heap[0] = heap[remaining - 1];
+            siftDown(heap, 0, remaining - 1, matched, scores);
+        }
+        return ranked;
+    }
+
+    private static void siftUp(int[] heap, int i, int[] matched, double[] scores) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!ranksBefore(heap[parent], heap[i], matched, scores)) {
+                return;
+            }
+            int swap = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = swap;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int i, int size, int[] matched, double[] scores) {
+        while (true) {
+            int weakest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && ranksBefore(heap[weakest], heap[left], matched, scores)) {
+                weakest = left;
+            }
+            if (right < size && ranksBefore(heap[weakest], heap[right], matched, scores)) {
+                weakest = right;
+            }
+            if (weakest == i) {
+                return;
+            }
+            int swap = heap[i];
+            heap[i] = heap[weakest];
+            heap[weakest] = swap;
+            i = weakest;
+        }
+    }
+
+    private static boolean ranksBefore(int a, int b, int[] matched, double[] scores) {
+        int byScore = Double.compare(scores[a], scores[b]);
+        return byScore != 0 ? byScore > 0 : matched[a] < matched[b];
+    }
+
+    private static class Postings {
+        private int[] ordinals = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+}
+
+// Every movie ordinal sorted by descending rating, so "rating >= x" is a prefix found by
+// binary search. The ordinals live in two runs: a main run over most of the catalog and a
+// small delta run of recent movies. A query after inserts sorts only the new ordinals and
+// merges them into the delta; the main run is rebuilt only once the delta outgrows
+// max(MIN_DELTA, main / DELTA_RATIO), so a re-merge of all N ordinals happens once per
+// N / DELTA_RATIO inserts instead of on every query that follows one. Merges are serialized
+// and publish a new immutable snapshot; queries filter against the snapshot they read,
+// without taking the lock. Ratings are read from the MovieColumns ratings column.
+class RatingIndex {
+    private static final int MIN_DELTA = 4096;
+    private static final int DELTA_RATIO = 64;
+
+    private final MovieColumns columns;
+    private final ReentrantLock mergeLock = new ReentrantLock();
+    private volatile Snapshot snapshot = new Snapshot(Run.EMPTY, Run.EMPTY);
+
+    public RatingIndex(MovieColumns columns) {
+        this.columns = columns;
+    }
+
+    // The candidates whose rating is at least minRating, as sorted ordinals. Walks whichever
+    // is smaller: the candidates, or the prefix of movies rated at least minRating.
+    public int[] filterAtLeast(OrdinalBitmap candidates, double minRating) {
+        if (minRating == Double.NEGATIVE_INFINITY) {
+            return candidates.toArray();
+        }
+        Snapshot current = current();
+        int mainQualifying = current.main.countAtLeast(minRating);
+        int deltaQualifying = current.delta.countAtLeast(minRating);
+        int[] matches;
+        int count = 0;
+        if (candidates.cardinality() <= mainQualifying + deltaQualifying) {
+            int[] all = candidates.toArray();
+            matches = new int[all.length];
+            for (int ordinal : all) {
+                if (columns.rating(ordinal) >= minRating) {
+                    matches[count++] = ordinal;
+                }
+            }
+            return Arrays.copyOf(matches, count);
+        }
+        matches = new int[mainQualifying + deltaQualifying];
+        for (int i = 0; i < mainQualifying; i++) {
+            if (candidates.contains(current.main.ordinals[i])) {
+                matches[count++] = current.main.ordinals[i];
+            }
+        }
+        for (int i = 0; i < deltaQualifying; i++) {
+            if (candidates.contains(current.delta.ordinals[i])) {
+                matches[count++] = current.delta.ordinals[i];
+            }
+        }
+        Arrays.sort(matches, 0, count);
+        return Arrays.copyOf(matches, count);
+    }
+
+    // Every movie rated at least minRating, as sorted ordinals.
+    public int[] atLeast(double minRating) {
+        Snapshot current = current();
+        int mainQualifying = current.main.countAtLeast(minRating);
+        int deltaQualifying = current.delta.countAtLeast(minRating);
+        int[] matches = Arrays.copyOf(current.main.ordinals, mainQualifying + deltaQualifying);
+        System.arraycopy(current.delta.ordinals, 0, matches, mainQualifying, deltaQualifying);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    // Callers hold the catalog read lock, so the columns cannot grow past what the returned
+    // snapshot covers.
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current.size() == columns.size()) {
+            return current;
+        }
+        mergeLock.lock();
+        try {
+            catchUp();
+            return snapshot;
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    private void catchUp() {
+        Snapshot current = snapshot;
+        int indexed = current.size();
+        int total = columns.size();
+        if (indexed == total) {
+            return;
+        }
+        int[] added = new int[total - indexed];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = indexed + i;
+        }
+        Run delta = Run.merge(current.delta, sortByRating(added));
+        if (delta.ordinals.length > Math.max(MIN_DELTA, current.main.ordinals.length / DELTA_RATIO)) {
+            snapshot = new Snapshot(Run.merge(current.main, delta), Run.EMPTY);
+        } else {
+            snapshot = new Snapshot(current.main, delta);
+        }
+    }
+
+    // Stable bottom-up merge sort of ordinals by descending rating, on primitive arrays.
+    private Run sortByRating(int[] ordinals) {
+        double[] ratings = new double[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            ratings[i] = columns.rating(ordinals[i]);
+        }
+        Run sorted = new Run(ordinals, ratings);
+        for (int width = 1; width < ordinals.length; width *= 2) {
+            Run next = new Run(new int[ordinals.length], new double[ordinals.length]);
+            for (int low = 0; low < ordinals.length; low += 2 * width) {
+                int middle = Math.min(low + width, ordinals.length);
+                int high = Math.min(low + 2 * width, ordinals.length);
+                Run.mergeInto(sorted, low, middle, sorted, middle, high, next, low);
+            }
+            sorted = next;
+        }
+        return sorted;
+    }
+
+    // Ordinals with their ratings, by descending rating; equal ratings keep ordinal order.
+    private static final class Run {
+        static final Run EMPTY = new Run(new int[0], new double[0]);
+
+        private final int[] ordinals;
+        private final double[] ratings;
+
+        Run(int[] ordinals, double[] ratings) {
+            this.ordinals = ordinals;
+            this.ratings = ratings;
+        }
+
+        // Every ordinal in older precedes those in newer, so ties take from older first.
+        static Run merge(Run older, Run newer) {
+            int total = older.ordinals.length + newer.ordinals.length;
+            Run merged = new Run(new int[total], new double[total]);
+            mergeInto(older, 0, older.ordinals.length, newer, 0, newer.ordinals.length, merged, 0);
+            return merged;
+        }
+
+        static void mergeInto(Run left, int i, int leftEnd, Run right, int j, int rightEnd, Run out, int k) {
+            while (i < leftEnd || j < rightEnd) {
+                if (j == rightEnd || (i < leftEnd && left.ratings[i] >= right.ratings[j])) {
+                    out.ordinals[k] = left.ordinals[i];
+                    out.ratings[k++] = left.ratings[i++];
+                } else {
+                    out.ordinals[k] = right.ordinals[j];
+                    out.ratings[k++] = right.ratings[j++];
+                }
+            }
+        }
+
+        int countAtLeast(double minRating) {
+            int low = 0;
+            int high = ratings.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ratings[mid] >= minRating) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class Snapshot {
+        private final Run main;
+        private final Run delta;
+
+        Snapshot(Run main, Run delta) {
+            this.main = main;
+            this.delta = delta;
+        }
+
+        int size() {
+            return main.ordinals.length + delta.ordinals.length;
+        }
+    }
+}
+
+// Cached results stored as sorted ordinals into the MovieTable; Movie objects are looked up
+// only when a caller reads an element. Large lists are delta + varint encoded.
+abstract class CompactMovieList extends AbstractList<Movie> {
+    static final int COMPRESSION_THRESHOLD = 256;
+
+    protected final MovieTable table;
+    private volatile List<Movie> byRating;
+
+    protected CompactMovieList(MovieTable table) {
+        this.table = table;
+    }
+
+    // The same movies highest rated first. Sorted on first use and then shared by every
+    // cache hit on this list, since L1 and L2 entries for a key hold the same instance.
+    public List<Movie> byRating() {
+        List<Movie> sorted = byRating;
+        if (sorted == null) {
+            Movie[] movies = toArray(new Movie[0]);
+            Arrays.sort(movies, Movie.BY_RATING);
+            sorted = List.of(movies);
+            byRating = sorted;
+        }
+        return sorted;
+    }
+
+    public static CompactMovieList of(MovieTable table, int[] sortedOrdinals) {
+        if (sortedOrdinals.length >= COMPRESSION_THRESHOLD) {
+            return new DeltaEncodedMovieList(table, sortedOrdinals);
+        }
+        return new OrdinalMovieList(table, sortedOrdinals);
+    }
+
+    public abstract int[] toOrdinals();
+
+    // A new list that also holds the given movie, keeping ordinals sorted.
+    public CompactMovieList with(Movie movie) {
+        int[] ordinals = toOrdinals();
+        int position = Arrays.binarySearch(ordinals, movie.getOrdinal());
+        if (position >= 0) {
+            return this;
+        }
+        int insertAt = -position - 1;
+        int[] extended = new int[ordinals.length + 1];
+        System.arraycopy(ordinals, 0, extended, 0, insertAt);
+        extended[insertAt] = movie.getOrdinal();
+        System.arraycopy(ordinals, insertAt, extended, insertAt + 1, ordinals.length - insertAt);
+        return of(table, extended);
+    }
+}
+
+class OrdinalMovieList extends CompactMovieList implements RandomAccess {
+    private final int[] ordinals;
+
+    public OrdinalMovieList(MovieTable table, int[] sortedOrdinals) {
+        super(table);
+        this.ordinals = sortedOrdinals;
+    }
+
+    @Override
+    public Movie get(int index) {
+        return table.get(ordinals[index]);
+    }
+
+    @Override
+    public int size() {
+        return ordinals.length;
+    }
+
+    @Override
+    public int[] toOrdinals() {
+        return ordinals.clone();
+    }
+}
+
+// Gaps between sorted ordinals as varints, with a checkpoint every 64 elements so get(i)
+// decodes at most 64 values. Iteration decodes sequentially.
+class DeltaEncodedMovieList extends CompactMovieList {
+    private static final int CHECKPOINT_INTERVAL = 64;
+
+    private final byte[] deltas;
+    private final int size;
+    private final int[] checkpointOffsets;
+    private final int[] checkpointBases;
+
+    public DeltaEncodedMovieList(MovieTable table, int[] sortedOrdinals) {
+        super(table);
+        this.size = sortedOrdinals.length;
+        this.checkpointOffsets = new int[(size + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL];
+        this.checkpointBases = new int[checkpointOffsets.length];
+
+        byte[] buffer = new byte[size * 5];
+        int length = 0;
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            if (i % CHECKPOINT_INTERVAL == 0) {
+                checkpointOffsets[i / CHECKPOINT_INTERVAL] = length;
+                checkpointBases[i / CHECKPOINT_INTERVAL] = previous;
+            }
+            int delta = sortedOrdinals[i] - previous;
+            while ((delta & ~0x7F) != 0) {
+                buffer[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            buffer[length++] = (byte) delta;
+            previous = sortedOrdinals[i];
+        }
+        this.deltas = Arrays.copyOf(buffer, length);
+    }
+
+    @Override
+    public Movie get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        OrdinalCursor cursor = new OrdinalCursor(index / CHECKPOINT_INTERVAL);
+        int ordinal = 0;
+        for (int i = index % CHECKPOINT_INTERVAL; i >= 0; i--) {
+            ordinal = cursor.next();
+        }
+        return table.get(ordinal);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Movie> iterator() {
+        OrdinalCursor cursor = new OrdinalCursor(0);
+        return new Iterator<Movie>() {
+            private int remaining = size;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Movie next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                return table.get(cursor.next());
+            }
+        };
+    }
+
+    @Override
+    public int[] toOrdinals() {
+        int[] ordinals = new int[size];
+        OrdinalCursor cursor = new OrdinalCursor(0);
+        for (int i = 0; i < size; i++) {
+            ordinals[i] = cursor.next();
+        }
+        return ordinals;
+    }
+
+    private class OrdinalCursor {
+        private int offset;
+        private int value;
+
+        OrdinalCursor(int checkpoint) {
+            this.offset = size == 0 ? 0 : checkpointOffsets[checkpoint];
+            this.value = size == 0 ? 0 : checkpointBases[checkpoint];
+        }
+
+        int next() {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = deltas[offset++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += delta;
+            return value;
+        }
+    }
+}
+
+class CacheEntry {
+    private final SearchKey searchKey;
+    private volatile List<Movie> results;
+    private int frequency;
+    private long lastAccessed;
+
+    public CacheEntry(SearchKey searchKey, List<Movie> results) {
+        this.searchKey = searchKey;
+        this.results = results instanceof CompactMovieList ? results : List.copyOf(results);
+        this.frequency = 1;
+        this.lastAccessed = System.currentTimeMillis();
+    }
+
+    public void incrementFrequency() {
+        this.frequency++;
+        this.lastAccessed = System.currentTimeMillis();
+    }
+
+    // Extends the cached answer with a newly added movie if the search would have returned it.
+    public void patch(Movie movie) {
+        if (!searchKey.matches(movie)) {
+            return;
+        }
+        if (results instanceof CompactMovieList) {
+            this.results = ((CompactMovieList) results).with(movie);
+        } else {
+            List<Movie> patched = new ArrayList<>(results.size() + 1);
+            patched.addAll(results);
+            patched.add(movie);
+            this.results = List.copyOf(patched);
+        }
+    }
+
+    public SearchKey getSearchKey() { return searchKey; }
+    public SearchKey getDependency() { return searchKey.dependency(); }
+    // Results are immutable and shared, so hits hand out the list without copying it.
+    public List<Movie> getResults() { return results; }
+    public int getFrequency() { return frequency; }
+    public long getLastAccessed() { return lastAccessed; }
+}
+
+class L1Cache {
+    private final Map<String, UserEntries> userCache;
+    private final Map<SearchKey, Set<String>> usersByDependency;
+    private final int maxEntriesPerUser;
+
+    public L1Cache(int maxEntriesPerUser) {
+        this.userCache = new ConcurrentHashMap<>();
+        this.usersByDependency = new ConcurrentHashMap<>();
+        this.maxEntriesPerUser = maxEntriesPerUser;
+    }
+
+    public List<Movie> get(String userId, SearchKey searchKey) {
+        UserEntries cache = userCache.get(userId);
+        if (cache == null) {
+            return null;
+        }
+        cache.lock.lock();
+        try {
+            CacheEntry entry = cache.touch(searchKey);
+            if (entry != null) {
+                entry.incrementFrequency();
+                return entry.getResults();
+            }
+        } finally {
+            cache.lock.unlock();
+        }
+        return null;
+    }
+
+    // Size of the user's cached answer for the key, or -1 if there is none. Unlike get, a
+    // peek leaves the entry's recency and frequency alone, so costing a plan that is then
+    // rejected does not make the entry look popular.
+    public int peekSize(String userId, SearchKey searchKey) {
+        UserEntries cache = userCache.get(userId);
+        if (cache == null) {
+            return -1;
+        }
+        cache.lock.lock();
+        try {
+            CacheEntry entry = cache.entries.get(searchKey);
+            return entry != null ? entry.getResults().size() : -1;
+        } finally {
+            cache.lock.unlock();
+        }
+    }
+
+    // The user's smallest cached answer that contains the given search, if any.
+    public List<Movie> getContaining(String userId, SearchKey searchKey) {
+        Set<String> holders = usersByDependency.get(searchKey.dependency());
+        UserEntries cache = userCache.get(userId);
+        if (holders == null || cache == null || !holders.contains(userId)) {
+            return null;
+        }
+        cache.lock.lock();
+        try {
+            CacheEntry best = null;
+            for (CacheEntry entry : cache.entries.values()) {
+                if (entry.getSearchKey().contains(searchKey)
+                        && (best == null || entry.getResults().size() < best.getResults().size())) {
+                    best = entry;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            cache.touch(best.getSearchKey());
+            best.incrementFrequency();
+            return best.getResults();
+        } finally {
+            cache.lock.unlock();
+        }
+    }
+
+    public void put(String userId, SearchKey searchKey, List<Movie> results) {
+        UserEntries cache = userCache.computeIfAbsent(userId, UserEntries::new);
+        cache.lock.lock();
+        try {
+            cache.put(new CacheEntry(searchKey, results));
+        } finally {
+            cache.lock.unlock();
+        }
+    }
+
+    // Drops every user's entries that depend on the given catalog value and that the new
+    // movie affects; entries it does not affect are still correct.
+    public void invalidate(SearchKey dependency, Movie movie) {
+        Set<String> holders = usersByDependency.get(dependency);
+        if (holders == null) {
+            return;
+        }
+        for (String userId : holders) {
+            UserEntries cache = userCache.get(userId);
+            if (cache != null) {
+                cache.lock.lock();
+                try {
+                    cache.removeDependents(dependency, movie);
+                } finally {
+                    cache.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Adds the movie to every user's entries that depend on the given catalog value and match it.
+    public void patch(SearchKey dependency, Movie movie) {
+        Set<String> holders = usersByDependency.get(dependency);
+        if (holders == null) {
+            return;
+        }
+        for (String userId : holders) {
+            UserEntries cache = userCache.get(userId);
+            if (cache != null) {
+                cache.lock.lock();
+                try {
+                    cache.patchDependents(dependency, movie);
+                } finally {
+                    cache.lock.unlock();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        userCache.clear();
+        usersByDependency.clear();
+    }
+
+    // Each user's entries are their own lock stripe, so users never contend with each other.
+    // touch() re-inserts a used entry at the tail, so the head is always the LRU victim, while
+    // plain map reads leave the order alone. Per-dependency counts tell usersByDependency
+    // exactly which users still hold an entry for a given catalog value.
+    private class UserEntries {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final String userId;
+        private final Map<SearchKey, Integer> dependencyCounts = new HashMap<>();
+        private final LinkedHashMap<SearchKey, CacheEntry> entries = new LinkedHashMap<SearchKey, CacheEntry>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchKey, CacheEntry> eldest) {
+                if (size() > maxEntriesPerUser) {
+                    release(eldest.getValue().getDependency());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        UserEntries(String userId) {
+            this.userId = userId;
+        }
+
+        // Re-inserting at the same size never triggers removeEldestEntry.
+        CacheEntry touch(SearchKey searchKey) {
+            CacheEntry entry = entries.remove(searchKey);
+            if (entry != null) {
+                entries.put(searchKey, entry);
+            }
+            return entry;
+        }
+
+        void put(CacheEntry entry) {
+            acquire(entry.getDependency());
+            CacheEntry previous = entries.put(entry.getSearchKey(), entry);
+            if (previous != null) {
+                release(previous.getDependency());
+            }
+        }
+
+        void removeDependents(SearchKey dependency, Movie movie) {
+            Iterator<CacheEntry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                CacheEntry entry = it.next();
+                if (entry.getDependency().equals(dependency) && entry.getSearchKey().isAffectedBy(movie)) {
+                    it.remove();
+                    release(dependency);
+                }
+            }
+        }
+
+        void patchDependents(SearchKey dependency, Movie movie) {
+            for (CacheEntry entry : entries.values()) {
+                if (entry.getDependency().equals(dependency)) {
+                    entry.patch(movie);
+                }
+            }
+        }
+
+        private void acquire(SearchKey dependency) {
+            if (dependencyCounts.merge(dependency, 1, Integer::sum) == 1) {
+                usersByDependency.compute(dependency, (k, users) -> {
+                    Set<String> holders = users != null ? users : ConcurrentHashMap.newKeySet();
+                    holders.add(userId);
+                    return holders;
+                });
+            }
+        }
+
+        private void release(SearchKey dependency) {
+            if (dependencyCounts.computeIfPresent(dependency, (k, count) -> count == 1 ? null : count - 1) == null) {
+                usersByDependency.computeIfPresent(dependency, (k, users) -> {
+                    users.remove(userId);
+                    return users.isEmpty() ? null : users;
+                });
+            }
+        }
+    }
+}
+
+interface AdmissionPolicy {
+    void recordAccess(SearchKey searchKey);
+    boolean admit(SearchKey candidateKey, SearchKey victimKey);
+}
+
+class AlwaysAdmitPolicy implements AdmissionPolicy {
+    @Override
+    public void recordAccess(SearchKey searchKey) { }
+
+    @Override
+    public boolean admit(SearchKey candidateKey, SearchKey victimKey) {
+        return true;
+    }
+}
+
+class TinyLfuAdmissionPolicy implements AdmissionPolicy {
+    private final FrequencySketch sketch;
+
+    public TinyLfuAdmissionPolicy(int expectedEntries) {
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    @Override
+    public void recordAccess(SearchKey searchKey) {
+        sketch.increment(searchKey);
+    }
+
+    // A candidate only displaces the victim if it has been asked for more often recently,
+    // so a burst of one-off queries cannot flush the long-lived popular keys.
+    @Override
+    public boolean admit(SearchKey candidateKey, SearchKey victimKey) {
+        return sketch.estimate(candidateKey) > sketch.estimate(victimKey);
+    }
+}
+
+class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97cb3127, 0xc3a5c85c, 0x85ebca6b, 0x27d4eb2f };
+
+    private final int[] counters;
+    private final int width;
+    private final int sampleSize;
+    private int additions;
+
+    public FrequencySketch(int expectedEntries) {
+        this.width = Integer.highestOneBit(Math.max(16, expectedEntries - 1) << 1);
+        this.counters = new int[DEPTH * width];
+        this.sampleSize = 10 * width;
+    }
+
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            age();
+        }
+    }
+
+    public int estimate(Object key) {
+        int hash = spread(key.hashCode());
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters[indexOf(hash, row)]);
+        }
+        return min;
+    }
+
+    // Halving every counter once per sample period lets old popularity decay.
+    private void age() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 17;
+        return row * width + (h & (width - 1));
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+}
+
+class L2Cache {
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_ENTRIES_PER_SEGMENT = 64;
+
+    private final L2Segment[] segments;
+
+    public L2Cache(int maxEntries) {
+        this(maxEntries, expectedEntries -> new AlwaysAdmitPolicy(), 0);
+    }
+
+    // Keys are striped across independently locked segments, each running its own window,
+    // LFU main region and admission policy. Small caches stay a single segment so their
+    // eviction order is exact.
+    public L2Cache(int maxEntries, IntFunction<AdmissionPolicy> admissionPolicy, int windowEntries) {
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && maxEntries / (segmentCount * 2) >= MIN_ENTRIES_PER_SEGMENT) {
+            segmentCount *= 2;
+        }
+        this.segments = new L2Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentEntries = maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0);
+            int segmentWindow = windowEntries == 0 ? 0 : Math.max(1, windowEntries / segmentCount);
+            segments[i] = new L2Segment(segmentEntries, admissionPolicy.apply(segmentEntries), segmentWindow);
+        }
+    }
+
+    public List<Movie> get(SearchKey searchKey) {
+        return segmentFor(searchKey).get(searchKey);
+    }
+
+    // Size of the cached answer for the key, or -1; see L2Segment.peekSize.
+    public int peekSize(SearchKey searchKey) {
+        return segmentFor(searchKey).peekSize(searchKey);
+    }
+
+    // The smallest cached answer, across all segments, that contains the given search.
+    public List<Movie> getContaining(SearchKey searchKey) {
+        CacheEntry best = null;
+        for (L2Segment segment : segments) {
+            CacheEntry candidate = segment.findContaining(searchKey);
+            if (candidate != null && (best == null || candidate.getResults().size() < best.getResults().size())) {
+                best = candidate;
+            }
+        }
+        return best == null ? null : get(best.getSearchKey());
+    }
+
+    public void put(SearchKey searchKey, List<Movie> results) {
+        segmentFor(searchKey).put(searchKey, results);
+    }
+
+    public void invalidate(SearchKey dependency, Movie movie) {
+        for (L2Segment segment : segments) {
+            segment.invalidate(dependency, movie);
+        }
+    }
+
+    public void patch(SearchKey dependency, Movie movie) {
+        for (L2Segment segment : segments) {
+            segment.patch(dependency, movie);
+        }
+    }
+
+    public void clear() {
+        for (L2Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    // Each segment's HashMaps index by the low bits of the spread hash, so picking the segment
+    // from those same bits would leave every key in a segment sharing them and crowd it into
+    // a fraction of the buckets. The segment comes from mixed middle bits instead.
+    private L2Segment segmentFor(SearchKey searchKey) {
+        int hash = searchKey.hashCode() * 0x9E3779B9;
+        return segments[(hash >>> 16) & (segments.length - 1)];
+    }
+}
+
+class L2Segment {
+    private final Map<SearchKey, CacheEntry> window;
+    private final Map<SearchKey, CacheEntry> globalCache;
+    private final Map<SearchKey, FrequencyBucket> buckets;
+    private final Map<SearchKey, Set<SearchKey>> dependents;
+    private final AdmissionPolicy admissionPolicy;
+    private final int windowEntries;
+    private final int mainEntries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private FrequencyBucket lowest;
+
+    // New keys land in a small LRU window; only keys the admission policy prefers over
+    // the current LFU victim make it from the window into the main region.
+    public L2Segment(int maxEntries, AdmissionPolicy admissionPolicy, int windowEntries) {
+        if (windowEntries < 0 || windowEntries >= maxEntries) {
+            throw new IllegalArgumentException("Window must be smaller than the cache");
+        }
+        this.window = new LinkedHashMap<>();
+        this.globalCache = new HashMap<>();
+        this.buckets = new HashMap<>();
+        this.dependents = new HashMap<>();
+        this.admissionPolicy = admissionPolicy;
+        this.windowEntries = windowEntries;
+        this.mainEntries = maxEntries - windowEntries;
+    }
+
+    public List<Movie> get(SearchKey searchKey) {
+        lock.lock();
+        try {
+            admissionPolicy.recordAccess(searchKey);
+            CacheEntry entry = window.remove(searchKey);
+            if (entry != null) {
+                window.put(searchKey, entry);
+            } else {
+                entry = globalCache.get(searchKey);
+                if (entry == null) {
+                    return null;
+                }
+                promote(searchKey);
+            }
+            entry.incrementFrequency();
+            return entry.getResults();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reads the entry's size without recording an access, promoting it or feeding the
+    // admission sketch.
+    public int peekSize(SearchKey searchKey) {
+        lock.lock();
+        try {
+            CacheEntry entry = window.get(searchKey);
+            if (entry == null) {
+                entry = globalCache.get(searchKey);
+            }
+            return entry != null ? entry.getResults().size() : -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheEntry findContaining(SearchKey searchKey) {
+        lock.lock();
+        try {
+            Set<SearchKey> keys = dependents.get(searchKey.dependency());
+            if (keys == null) {
+                return null;
+            }
+            CacheEntry best = null;
+            for (SearchKey key : keys) {
+                if (key.contains(searchKey)) {
+                    CacheEntry entry = globalCache.containsKey(key) ? globalCache.get(key) : window.get(key);
+                    if (best == null || entry.getResults().size() < best.getResults().size()) {
+                        best = entry;
+                    }
+                }
+            }
+            return best;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(SearchKey searchKey, List<Movie> results) {
+        lock.lock();
+        try {
+            admissionPolicy.recordAccess(searchKey);
+            CacheEntry previous = window.remove(searchKey);
+            if (previous != null) {
+                forget(previous);
+            } else if (globalCache.containsKey(searchKey)) {
+                remove(searchKey);
+            }
+
+            CacheEntry entry = new CacheEntry(searchKey, results);
+            dependents.computeIfAbsent(searchKey.dependency(), k -> new HashSet<>()).add(searchKey);
+            if (windowEntries == 0) {
+                admit(searchKey, entry);
+                return;
+            }
+
+            window.put(searchKey, entry);
+            if (window.size() > windowEntries) {
+                Map.Entry<SearchKey, CacheEntry> eldest = window.entrySet().iterator().next();
+                window.remove(eldest.getKey());
+                admit(eldest.getKey(), eldest.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(SearchKey dependency, Movie movie) {
+        lock.lock();
+        try {
+            Set<SearchKey> keys = dependents.get(dependency);
+            if (keys == null) {
+                return;
+            }
+            for (SearchKey searchKey : new ArrayList<>(keys)) {
+                if (!searchKey.isAffectedBy(movie)) {
+                    continue;
+                }
+                CacheEntry entry = window.remove(searchKey);
+                if (entry != null) {
+                    forget(entry);
+                } else {
+                    remove(searchKey);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void patch(SearchKey dependency, Movie movie) {
+        lock.lock();
+        try {
+            Set<SearchKey> keys = dependents.get(dependency);
+            if (keys == null) {
+                return;
+            }
+            for (SearchKey searchKey : keys) {
+                CacheEntry entry = globalCache.get(searchKey);
+                if (entry == null) {
+                    entry = window.get(searchKey);
+                }
+                entry.patch(movie);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            window.clear();
+            globalCache.clear();
+            buckets.clear();
+            dependents.clear();
+            lowest = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void admit(SearchKey searchKey, CacheEntry entry) {
+        if (globalCache.size() >= mainEntries && lowest != null) {
+            SearchKey victimKey = lowest.keys.iterator().next();
+            if (!admissionPolicy.admit(searchKey, victimKey)) {
+                forget(entry);
+                return;
+            }
+            remove(victimKey);
+        }
+
+        globalCache.put(searchKey, entry);
+        FrequencyBucket first = lowest;
+        if (first == null || first.frequency != 1) {
+            first = new FrequencyBucket(1);
+            link(null, first);
+        }
+        first.keys.add(searchKey);
+        buckets.put(searchKey, first);
+    }
+
+    private void promote(SearchKey searchKey) {
+        FrequencyBucket current = buckets.get(searchKey);
+        int frequency = current.frequency + 1;
+        FrequencyBucket next = current.next;
+        if (next == null || next.frequency != frequency) {
+            next = new FrequencyBucket(frequency);
+            link(current, next);
+        }
+        current.keys.remove(searchKey);
+        next.keys.add(searchKey);
+        buckets.put(searchKey, next);
+        if (current.keys.isEmpty()) {
+            unlink(current);
+        }
+    }
+
+    private void remove(SearchKey searchKey) {
+        forget(globalCache.remove(searchKey));
+        FrequencyBucket bucket = buckets.remove(searchKey);
+        bucket.keys.remove(searchKey);
+        if (bucket.keys.isEmpty()) {
+            unlink(bucket);
+        }
+    }
+
+    private void forget(CacheEntry entry) {
+        Set<SearchKey> keys = dependents.get(entry.getDependency());
+        if (keys != null) {
+            keys.remove(entry.getSearchKey());
+            if (keys.isEmpty()) {
+                dependents.remove(entry.getDependency());
+            }
+        }
+    }
+
+    private void link(FrequencyBucket after, FrequencyBucket bucket) {
+        bucket.prev = after;
+        bucket.next = after == null ? lowest : after.next;
+        if (bucket.next != null) {
+            bucket.next.prev = bucket;
+        }
+        if (after == null) {
+            lowest = bucket;
+        } else {
+            after.next = bucket;
+        }
+    }
+
+    private void unlink(FrequencyBucket bucket) {
+        if (bucket.prev == null) {
+            lowest = bucket.next;
+        } else {
+            bucket.prev.next = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+        }
+    }
+
+    // One node per distinct frequency, ascending from lowest. Keys keep their arrival order,
+    // so the first key of the lowest bucket is the least recently used of the least frequent.
+    private static class FrequencyBucket {
+        private final int frequency;
+        private final LinkedHashSet<SearchKey> keys = new LinkedHashSet<>();
+        private FrequencyBucket prev;
+        private FrequencyBucket next;
+
+        FrequencyBucket(int frequency) {
+            this.frequency = frequency;
+        }
+    }
+}
+
+class ZipReelService {
+    // Column scans replace index intersections when the most selective posting list holds
+    // at least one movie in this many.
+    private static final int COLUMN_SCAN_DENSITY = 8;
+    // Below this many movies a column scan stays on the calling thread; forking and joining
+    // costs more than a sequential pass over a catalog this small.
+    static final int DEFAULT_PARALLEL_SCAN_THRESHOLD = 1 << 18;
+
+    private final Map<String, Movie> movies;
+    private final MovieTable movieTable;
+    private final MovieColumns movieColumns;
+    private final Map<String, User> users;
+    private final Map<Integer, OrdinalBitmap> genreIndex;
+    private final NavigableMap<Integer, OrdinalBitmap> yearIndex;
+    private final Map<String, OrdinalBitmap> titleIndex;
+    private final NavigableMap<String, OrdinalBitmap> titlePrefixIndex;
+    private final Map<String, OrdinalBitmap> titleTrigramIndex;
+    private final RatingIndex ratingIndex;
+    private final FullTextIndex fullTextIndex;
+    private final ReadWriteLock catalogLock;
+    private final L1Cache l1Cache;
+    private final L2Cache l2Cache;
+    private final Map<SearchKey, CompletableFuture<List<Movie>>> inFlight;
+    private final InvalidationMode invalidationMode;
+    private final int parallelScanThreshold;
+    private final Executor searchExecutor;
+    private final CacheStats cacheStats;
+
+    public ZipReelService() {
+        this(InvalidationMode.EVICT);
+    }
+
+    public ZipReelService(InvalidationMode invalidationMode) {
+        this(invalidationMode, DEFAULT_PARALLEL_SCAN_THRESHOLD);
+    }
+
+    // By default each async search runs on its own virtual thread. Idle, that executor holds
+    // no threads, so the service needs no shutdown.
+    public ZipReelService(InvalidationMode invalidationMode, int parallelScanThreshold) {
+        this(invalidationMode, parallelScanThreshold, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    // searchExecutor runs searchAsync and searchMultiAsync; the caller owns its lifecycle.
+    public ZipReelService(InvalidationMode invalidationMode, int parallelScanThreshold, Executor searchExecutor) {
+        if (parallelScanThreshold < 1) {
+            throw new IllegalArgumentException("Parallel scan threshold must be positive");
+        }
+        this.movies = new ConcurrentHashMap<>();
+        this.movieTable = new MovieTable();
+        this.movieColumns = new MovieColumns();
+        this.users = new ConcurrentHashMap<>();
+        this.genreIndex = new HashMap<>();
+        this.yearIndex = new TreeMap<>();
+        this.titleIndex = new HashMap<>();
+        this.titlePrefixIndex = new TreeMap<>();
+        this.titleTrigramIndex = new HashMap<>();
+        this.ratingIndex = new RatingIndex(movieColumns);
+        this.fullTextIndex = new FullTextIndex();
+        this.catalogLock = new ReentrantReadWriteLock();
+        this.l1Cache = new L1Cache(5);
+        this.l2Cache = new L2Cache(20, TinyLfuAdmissionPolicy::new, 1);
+        this.inFlight = new ConcurrentHashMap<>();
+        this.invalidationMode = invalidationMode;
+        this.parallelScanThreshold = parallelScanThreshold;
+        this.searchExecutor = searchExecutor;
+        this.cacheStats = new CacheStats();
+    }
+
+    public void addMovie(String id, String title, String genre, int year, double rating) {
+        catalogLock.writeLock().lock();
+        try {
+            Movie movie = new Movie(id, title, genre, year, rating, movieTable.size());
+            if (movies.putIfAbsent(id, movie) != null) {
+                throw new IllegalArgumentException("Movie with ID " + id + " already exists");
+            }
+            movieTable.append(movie);
+            movieColumns.append(movie);
+            genreIndex.computeIfAbsent(movie.getGenreId(), k -> new OrdinalBitmap()).add(movie.getOrdinal());
+            yearIndex.computeIfAbsent(year, k -> new OrdinalBitmap()).add(movie.getOrdinal());
+            titleIndex.computeIfAbsent(title, k -> new OrdinalBitmap()).add(movie.getOrdinal());
+            String normalizedTitle = TitleText.normalize(title);
+            titlePrefixIndex.computeIfAbsent(normalizedTitle, k -> new OrdinalBitmap()).add(movie.getOrdinal());
+            for (String trigram : TitleText.trigrams(normalizedTitle)) {
+                titleTrigramIndex.computeIfAbsent(trigram, k -> new OrdinalBitmap()).add(movie.getOrdinal());
+            }
+            fullTextIndex.add(movie);
+            invalidateDependents(movie);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        System.out.println("Movie '" + title + "' added successfully");
+    }
+
+    public void addUser(String id, String name, String preferredGenre) {
+        if (users.putIfAbsent(id, new User(id, name, preferredGenre)) != null) {
+            throw new IllegalArgumentException("User with ID " + id + " already exists");
+        }
+        System.out.println("User '" + name + "' added successfully");
+    }
+
+    // Only the cache entries built from the new movie's genre, year or title can change.
+    // EVICT drops them so the next search rescans; PATCH appends the movie to each entry
+    // whose search it matches and keeps the entry warm.
+    private void invalidateDependents(Movie movie) {
+        for (SearchKey dependency : SearchKey.dependenciesOf(movie)) {
+            if (invalidationMode == InvalidationMode.PATCH && !dependency.isRanked()) {
+                l1Cache.patch(dependency, movie);
+                l2Cache.patch(dependency, movie);
+            } else {
+                l1Cache.invalidate(dependency, movie);
+                l2Cache.invalidate(dependency, movie);
+            }
+        }
+    }
+
+    public List<SearchResult> search(String userId, SearchType searchType, String searchValue) {
+        return search(userId, searchType, searchValue, ResultOrder.CATALOG, 0, Integer.MAX_VALUE);
+    }
+
+    // One page of results; with ResultOrder.RATING the page is taken from the top-rated
+    // matches, so offset 0 and limit k is the top k.
+    public List<SearchResult> search(String userId, SearchType searchType, String searchValue,
+                                     ResultOrder order, int offset, int limit) {
+        if (!users.containsKey(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        SearchKey parsed = SearchKey.of(searchType, searchValue);
+        // A paged full-text search ranks only as deep as the page reaches.
+        SearchKey searchKey = parsed instanceof FullTextKey
+            ? ((FullTextKey) parsed).forPage(order, offset, limit)
+            : parsed;
+        return lookup(userId, searchKey, () -> searchInPrimaryStore(searchKey), order, offset, limit);
+    }
+
+    public List<SearchResult> searchMulti(String userId, String genre, int year, double minRating) {
+        return searchMulti(userId, genre, year, minRating, ResultOrder.CATALOG, 0, Integer.MAX_VALUE);
+    }
+
+    public List<SearchResult> searchMulti(String userId, String genre, int year, double minRating,
+                                          ResultOrder order, int offset, int limit) {
+        if (!users.containsKey(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        MultiKey searchKey = new MultiKey(genre, year, minRating);
+        return lookup(userId, searchKey, () -> searchMultiInPrimaryStore(searchKey), order, offset, limit);
+    }
+
+    // Asynchronous variants, run on the search executor (by default one virtual thread per
+    // search). Cache and index locks are ReentrantLocks rather than monitors, so a virtual
+    // thread blocked on one unmounts from its carrier thread instead of pinning it.
+    public CompletableFuture<List<SearchResult>> searchAsync(String userId, SearchType searchType,
+                                                             String searchValue) {
+        return CompletableFuture.supplyAsync(() -> search(userId, searchType, searchValue), searchExecutor);
+    }
+
+    public CompletableFuture<List<SearchResult>> searchMultiAsync(String userId, String genre, int year,
+                                                                  double minRating) {
+        return CompletableFuture.supplyAsync(() -> searchMulti(userId, genre, year, minRating), searchExecutor);
+    }
+
+    // Streaming variants: a cache hit streams the cached entry itself. A TITLE, GENRE or
+    // YEAR miss reads its posting list a batch at a time instead of materializing the whole
+    // answer first; other misses compute their candidates, then emit them one at a time.
+    // The answer is cached once a miss has been streamed to the end.
+    public Stream<SearchResult> searchStream(String userId, SearchType searchType, String searchValue) {
+        if (!users.containsKey(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        return stream(userId, SearchKey.of(searchType, searchValue));
+    }
+
+    public Stream<SearchResult> searchMultiStream(String userId, String genre, int year, double minRating) {
+        if (!users.containsKey(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        return stream(userId, new MultiKey(genre, year, minRating));
+    }
+
+    // Streams are consumed at the caller's pace, so no latency is recorded for them.
+    private Stream<SearchResult> stream(String userId, SearchKey searchKey) {
+        cacheStats.incrementTotalSearches();
+        List<Movie> results = l1Cache.get(userId, searchKey);
+        if (results != null) {
+            cacheStats.incrementL1Hits();
+            return results.stream().map(movie -> new SearchResult(movie, CacheLevel.L1));
+        }
+
+        catalogLock.readLock().lock();
+        try {
+            results = l2Cache.get(searchKey);
+            if (results != null) {
+                cacheStats.incrementL2Hits();
+                l1Cache.put(userId, searchKey, results);
+                return results.stream().map(movie -> new SearchResult(movie, CacheLevel.L2));
+            }
+            cacheStats.incrementPrimaryStoreHits();
+            if (searchKey.isRanked()) {
+                // Ranking needs every posting before the first result is known.
+                results = loadOnce(searchKey, () -> searchInPrimaryStore(searchKey));
+                l1Cache.put(userId, searchKey, results);
+                return results.stream().map(movie -> new SearchResult(movie, CacheLevel.PRIMARY_STORE));
+            }
+            OrdinalBitmap postings = indexPostings(searchKey);
+            PrimaryStoreStream source = postings != null
+                ? new PrimaryStoreStream(userId, searchKey, postings, movieTable.size())
+                : new PrimaryStoreStream(userId, searchKey, candidateOrdinals(searchKey), movieTable.size());
+            return StreamSupport.stream(source, false);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Single-attribute searches read the index's own posting bitmap a batch at a time, each
+    // batch under the read lock, so the first result costs one batch rather than the whole
+    // answer. Only ordinals below the catalog size at the start are read, so the stream
+    // answers as of the search even while movies are added. Other searches must compute
+    // their candidates (a union, an intersection, a rating cut) before the first result is
+    // known, and stream those; TITLE_FUZZY candidates are checked against the query as they
+    // are emitted. The movies behind the ordinals never change, so emitting needs no lock.
+    // The finished answer is cached only if no movie was added meanwhile, since addMovie
+    // could not have invalidated it.
+    private final class PrimaryStoreStream extends Spliterators.AbstractSpliterator<SearchResult> {
+        private static final int BATCH = 256;
+
+        private final String userId;
+        private final SearchKey searchKey;
+        private final OrdinalBitmap postings;
+        private final int catalogSize;
+        private int[] batch;
+        private int filled;
+        private int next;
+        private int[] matched = new int[16];
+        private int count;
+        private boolean finished;
+
+        PrimaryStoreStream(String userId, SearchKey searchKey, OrdinalBitmap postings, int catalogSize) {
+            super(postings.cardinality(), Spliterator.ORDERED | Spliterator.NONNULL);
+            this.userId = userId;
+            this.searchKey = searchKey;
+            this.postings = postings;
+            this.catalogSize = catalogSize;
+            this.batch = new int[BATCH];
+        }
+
+        PrimaryStoreStream(String userId, SearchKey searchKey, int[] candidates, int catalogSize) {
+            super(candidates.length, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.userId = userId;
+            this.searchKey = searchKey;
+            this.postings = null;
+            this.catalogSize = catalogSize;
+            this.batch = candidates;
+            this.filled = candidates.length;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super SearchResult> action) {
+            while (next < filled || refill()) {
+                Movie movie = movieTable.get(batch[next++]);
+                if (!(searchKey instanceof TitleFuzzyKey) || searchKey.matches(movie)) {
+                    if (count == matched.length) {
+                        matched = Arrays.copyOf(matched, count * 2);
+                    }
+                    matched[count++] = movie.getOrdinal();
+                    action.accept(new SearchResult(movie, CacheLevel.PRIMARY_STORE));
+                    return true;
+                }
+            }
+            if (!finished) {
+                finished = true;
+                cache();
+            }
+            return false;
+        }
+
+        private boolean refill() {
+            if (postings == null || finished) {
+                return false;
+            }
+            int from = filled == 0 ? 0 : batch[filled - 1] + 1;
+            catalogLock.readLock().lock();
+            try {
+                filled = postings.copyRange(from, catalogSize, batch);
+            } finally {
+                catalogLock.readLock().unlock();
+            }
+            next = 0;
+            return filled > 0;
+        }
+
+        private void cache() {
+            catalogLock.readLock().lock();
+            try {
+                if (movieTable.size() == catalogSize) {
+                    List<Movie> results = CompactMovieList.of(movieTable, Arrays.copyOf(matched, count));
+                    l2Cache.put(searchKey, results);
+                    l1Cache.put(userId, searchKey, results);
+                }
+            } finally {
+                catalogLock.readLock().unlock();
+            }
+        }
+    }
+
+    private List<SearchResult> lookup(String userId, SearchKey searchKey, Supplier<List<Movie>> loader,
+                                      ResultOrder order, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        long start = System.nanoTime();
+        List<Movie> results;
+        CacheLevel foundIn;
+
+        results = l1Cache.get(userId, searchKey);
+        if (results != null) {
+            cacheStats.incrementL1Hits();
+            foundIn = CacheLevel.L1;
+        } else {
+            // Filling a cache holds the catalog read lock, so addMovie cannot invalidate
+            // between reading a result and storing it.
+            catalogLock.readLock().lock();
+            try {
+                results = l2Cache.get(searchKey);
+                if (results != null) {
+                    cacheStats.incrementL2Hits();
+                    foundIn = CacheLevel.L2;
+                } else if ((results = l1Cache.getContaining(userId, searchKey)) != null) {
+                    cacheStats.incrementDerivedHits();
+                    foundIn = CacheLevel.L1;
+                    results = narrow(results, searchKey);
+                } else if ((results = l2Cache.getContaining(searchKey)) != null) {
+                    cacheStats.incrementDerivedHits();
+                    foundIn = CacheLevel.L2;
+                    results = narrow(results, searchKey);
+                } else if ((results = cheapestComponent(userId, searchKey, CacheLevel.L1)) != null) {
+                    cacheStats.incrementDerivedHits();
+                    foundIn = CacheLevel.L1;
+                    results = narrow(results, searchKey);
+                } else if ((results = cheapestComponent(userId, searchKey, CacheLevel.L2)) != null) {
+                    cacheStats.incrementDerivedHits();
+                    foundIn = CacheLevel.L2;
+                    results = narrow(results, searchKey);
+                } else {
+                    cacheStats.incrementPrimaryStoreHits();
+                    foundIn = CacheLevel.PRIMARY_STORE;
+                    results = loadOnce(searchKey, loader);
+                }
+                l1Cache.put(userId, searchKey, results);
+            } finally {
+                catalogLock.readLock().unlock();
+            }
+        }
+
+        cacheStats.incrementTotalSearches();
+        List<SearchResult> response = new SearchResultList(page(results, foundIn, order, offset, limit), foundIn);
+        cacheStats.recordLatency(foundIn, System.nanoTime() - start);
+        return response;
+    }
+
+    // Query planning for searches with components, e.g. GENRE:Action and YEAR:2008 for
+    // MULTI:Action:2008:x. Filtering a cached component answer costs one predicate test per
+    // movie in it; the primary store's bitmap intersection costs roughly one step per posting
+    // in every component. Returns the cheapest component answer cached at the given level,
+    // or null if the primary store is estimated to be cheaper.
+    private List<Movie> cheapestComponent(String userId, SearchKey searchKey, CacheLevel level) {
+        List<SearchKey> components = searchKey.components();
+        if (components.isEmpty()) {
+            return null;
+        }
+
+        long indexCost = 0;
+        for (SearchKey component : components) {
+            indexCost += indexCardinality(component);
+        }
+
+        // Costing peeks; only the chosen component is read, and so counted as used.
+        SearchKey cheapest = null;
+        long cheapestCost = indexCost;
+        for (SearchKey component : components) {
+            int size = level == CacheLevel.L1 ? l1Cache.peekSize(userId, component) : l2Cache.peekSize(component);
+            if (size >= 0 && size < cheapestCost) {
+                cheapest = component;
+                cheapestCost = size;
+            }
+        }
+        if (cheapest == null) {
+            return null;
+        }
+        return level == CacheLevel.L1 ? l1Cache.get(userId, cheapest) : l2Cache.get(cheapest);
+    }
+
+    // Callers hold the catalog read lock.
+    private int indexCardinality(SearchKey searchKey) {
+        OrdinalBitmap postings = indexPostings(searchKey);
+        return postings != null ? postings.cardinality() : movieTable.size();
+    }
+
+    // Callers hold the catalog read lock. The index's own posting bitmap for a single-attribute
+    // equality search, or null when the answer has to be computed.
+    private OrdinalBitmap indexPostings(SearchKey searchKey) {
+        if (searchKey instanceof TitleKey) {
+            return postings(titleIndex, ((TitleKey) searchKey).getTitle());
+        }
+        if (searchKey instanceof GenreKey) {
+            return postings(genreIndex, ((GenreKey) searchKey).getGenreId());
+        }
+        if (searchKey instanceof YearKey) {
+            return postings(yearIndex, ((YearKey) searchKey).getYear());
+        }
+        return null;
+    }
+
+    // A cache hit pages through the entry's shared rating order. A fresh primary-store answer
+    // has not been sorted yet, so a bounded heap picks just the top offset + limit.
+    private static List<Movie> page(List<Movie> results, CacheLevel foundIn, ResultOrder order,
+                                    int offset, int limit) {
+        int from = Math.min(offset, results.size());
+        int to = (int) Math.min((long) offset + limit, results.size());
+        if (order == ResultOrder.CATALOG) {
+            return from == 0 && to == results.size() ? results : results.subList(from, to);
+        }
+        if (foundIn != CacheLevel.PRIMARY_STORE && results instanceof CompactMovieList) {
+            return ((CompactMovieList) results).byRating().subList(from, to);
+        }
+        return topRated(results, to).subList(from, to);
+    }
+
+    private static List<Movie> topRated(List<Movie> movies, int k) {
+        if (k == 0) {
+            return List.of();
+        }
+        PriorityQueue<Movie> heap = new PriorityQueue<>(k, Movie.BY_RATING.reversed());
+        for (Movie movie : movies) {
+            if (heap.size() < k) {
+                heap.add(movie);
+            } else if (Movie.BY_RATING.compare(movie, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(movie);
+            }
+        }
+        Movie[] top = new Movie[heap.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = heap.poll();
+        }
+        return Arrays.asList(top);
+    }
+
+    // Filters a cached answer that contains the search down to the search's own answer,
+    // e.g. MULTI:Action:2008:8.0 from the cached MULTI:Action:2008:7.0.
+    private List<Movie> narrow(List<Movie> containing, SearchKey searchKey) {
+        int[] ordinals = new int[containing.size()];
+        int count = 0;
+        for (Movie movie : containing) {
+            if (searchKey.matches(movie)) {
+                ordinals[count++] = movie.getOrdinal();
+            }
+        }
+        return CompactMovieList.of(movieTable, Arrays.copyOf(ordinals, count));
+    }
+
+    // Only the first caller to miss on a key scans the primary store and fills L2;
+    // concurrent callers for the same key wait for its result instead of rescanning.
+    private List<Movie> loadOnce(SearchKey searchKey, Supplier<List<Movie>> loader) {
+        CompletableFuture<List<Movie>> flight = new CompletableFuture<>();
+        CompletableFuture<List<Movie>> existing = inFlight.putIfAbsent(searchKey, flight);
+        if (existing != null) {
+            cacheStats.incrementCoalescedRequests();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            List<Movie> results = loader.get();
+            l2Cache.put(searchKey, results);
+            flight.complete(results);
+            return results;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(searchKey, flight);
+        }
+    }
+
+    // Callers hold the catalog read lock.
+    private List<Movie> searchInPrimaryStore(SearchKey searchKey) {
+        if (searchKey instanceof FullTextKey) {
+            FullTextKey fullText = (FullTextKey) searchKey;
+            int[] ranked = fullTextIndex.search(fullText.getTerms(), fullText.getDepth());
+            Movie[] results = new Movie[ranked.length];
+            for (int i = 0; i < ranked.length; i++) {
+                results[i] = movieTable.get(ranked[i]);
+            }
+            return List.of(results);
+        }
+        int[] candidates = candidateOrdinals(searchKey);
+        if (searchKey instanceof TitleFuzzyKey) {
+            candidates = verify(candidates, searchKey);
+        }
+        return CompactMovieList.of(movieTable, candidates);
+    }
+
+    // Callers hold the catalog read lock. Sorted ordinals of every movie that can match the
+    // search; exact for every search but TITLE_FUZZY, which still needs its edit-distance
+    // check.
+    private int[] candidateOrdinals(SearchKey searchKey) {
+        OrdinalBitmap postings = indexPostings(searchKey);
+        if (postings != null) {
+            return postings.toArray();
+        }
+        if (searchKey instanceof YearRangeKey) {
+            YearRangeKey range = (YearRangeKey) searchKey;
+            Collection<OrdinalBitmap> years = yearIndex.subMap(range.getFromYear(), true, range.getToYear(), true).values();
+            return OrdinalBitmap.or(years).toArray();
+        }
+        if (searchKey instanceof RatingAtLeastKey) {
+            return ratingIndex.atLeast(((RatingAtLeastKey) searchKey).getMinRating());
+        }
+        if (searchKey instanceof TitlePrefixKey) {
+            String prefix = ((TitlePrefixKey) searchKey).getPrefix();
+            Collection<OrdinalBitmap> titles = titlePrefixIndex.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+            return OrdinalBitmap.or(titles).toArray();
+        }
+        if (searchKey instanceof TitleFuzzyKey) {
+            return fuzzyTitleCandidates((TitleFuzzyKey) searchKey);
+        }
+        if (searchKey instanceof MultiKey) {
+            MultiKey multi = (MultiKey) searchKey;
+            if (prefersColumnScan(multi)) {
+                return scanColumns(multi);
+            }
+            OrdinalBitmap candidates = OrdinalBitmap.and(
+                postings(genreIndex, multi.getGenreId()),
+                postings(yearIndex, multi.getYear()));
+            return ratingIndex.filterAtLeast(candidates, multi.getMinRating());
+        }
+        throw new IllegalArgumentException("Unsupported search key: " + searchKey);
+    }
+
+    // Trigram count filter: a title within maxEdits of the query shares at least
+    // requiredTrigrams() of its trigrams. The trigrams' postings are merged by ordinal, so
+    // the counts live in primitive arrays and the candidates come out sorted.
+    private int[] fuzzyTitleCandidates(TitleFuzzyKey searchKey) {
+        Set<String> trigrams = TitleText.trigrams(searchKey.getQuery());
+        int required = searchKey.requiredTrigrams();
+        int[][] lists = new int[trigrams.size()][];
+        int listCount = 0;
+        long total = 0;
+        for (String trigram : trigrams) {
+            OrdinalBitmap postings = titleTrigramIndex.get(trigram);
+            if (postings != null) {
+                lists[listCount] = postings.toArray();
+                total += lists[listCount++].length;
+            }
+        }
+        if (listCount < required) {
+            return new int[0];
+        }
+
+        // Every candidate uses up at least required postings.
+        int[] candidates = new int[(int) Math.min(total / required, movieTable.size())];
+        int count = 0;
+        int[] cursors = new int[listCount];
+        while (true) {
+            int next = Integer.MAX_VALUE;
+            for (int k = 0; k < listCount; k++) {
+                if (cursors[k] < lists[k].length) {
+                    next = Math.min(next, lists[k][cursors[k]]);
+                }
+            }
+            if (next == Integer.MAX_VALUE) {
+                break;
+            }
+            int shared = 0;
+            for (int k = 0; k < listCount; k++) {
+                if (cursors[k] < lists[k].length && lists[k][cursors[k]] == next) {
+                    cursors[k]++;
+                    shared++;
+                }
+            }
+            if (shared >= required) {
+                candidates[count++] = next;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private int[] verify(int[] candidates, SearchKey searchKey) {
+        int[] matched = new int[candidates.length];
+        int count = 0;
+        for (int ordinal : candidates) {
+            if (searchKey.matches(movieTable.get(ordinal))) {
+                matched[count++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(matched, count);
+    }
+
+    // Callers hold the catalog read lock. Equality predicates are bitmap intersections, and
+    // the rating floor is applied last against the rating-sorted ordinals; when even the
+    // most selective predicate keeps much of the catalog, one column scan is cheaper.
+    private List<Movie> searchMultiInPrimaryStore(MultiKey searchKey) {
+        return CompactMovieList.of(movieTable, candidateOrdinals(searchKey));
+    }
+
+    // A sequential pass over packed primitives costs a fraction of a bitmap probe plus a
+    // Movie dereference per row, so the scan wins once the postings are this dense.
+    private boolean prefersColumnScan(MultiKey searchKey) {
+        int selective = Math.min(
+            postings(genreIndex, searchKey.getGenreId()).cardinality(),
+            postings(yearIndex, searchKey.getYear()).cardinality());
+        return (long) selective * COLUMN_SCAN_DENSITY >= movieColumns.size();
+    }
+
+    private int[] scanColumns(MultiKey searchKey) {
+        if (movieColumns.size() >= parallelScanThreshold) {
+            return movieColumns.parallelScan(searchKey.getGenreId(), searchKey.getYear(), searchKey.getMinRating());
+        }
+        return movieColumns.scan(searchKey.getGenreId(), searchKey.getYear(), searchKey.getMinRating());
+    }
+
+    private static <K> OrdinalBitmap postings(Map<K, OrdinalBitmap> index, K key) {
+        OrdinalBitmap postings = index.get(key);
+        return postings != null ? postings : new OrdinalBitmap();
+    }
+
+    public void clearCache(CacheLevel level) {
+        switch (level) {
+            case L1:
+                l1Cache.clear();
+                break;
+            case L2:
+                l2Cache.clear();
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid cache level");
+        }
+        System.out.println(level + " cache cleared successfully");
+    }
+
+    public CacheStats getCacheStats() {
+        return cacheStats;
+    }
+}
+
+class CacheStats {
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder derivedHits = new LongAdder();
+    private final LongAdder primaryStoreHits = new LongAdder();
+    private final LongAdder totalSearches = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private final Map<CacheLevel, LatencyHistogram> latencies = new EnumMap<>(CacheLevel.class);
+
+    public CacheStats() {
+        for (CacheLevel level : CacheLevel.values()) {
+            latencies.put(level, new LatencyHistogram());
+        }
+    }
+
+    public void incrementL1Hits() { l1Hits.increment(); }
+    public void incrementL2Hits() { l2Hits.increment(); }
+    public void incrementDerivedHits() { derivedHits.increment(); }
+    public void incrementPrimaryStoreHits() { primaryStoreHits.increment(); }
+    public void incrementTotalSearches() { totalSearches.increment(); }
+    public void incrementCoalescedRequests() { coalescedRequests.increment(); }
+
+    public void recordLatency(CacheLevel level, long nanos) {
+        latencies.get(level).record(nanos);
+    }
+
+    // Reads every counter without blocking writers, so counters may be a few updates apart.
+    public CacheStatsSnapshot snapshot() {
+        Map<CacheLevel, LatencySnapshot> latencySnapshots = new EnumMap<>(CacheLevel.class);
+        for (Map.Entry<CacheLevel, LatencyHistogram> entry : latencies.entrySet()) {
+            latencySnapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return new CacheStatsSnapshot(l1Hits.sum(), l2Hits.sum(), derivedHits.sum(), primaryStoreHits.sum(),
+            totalSearches.sum(), coalescedRequests.sum(), latencySnapshots);
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
+
+class CacheStatsSnapshot {
+    private final long l1Hits;
+    private final long l2Hits;
+    private final long derivedHits;
+    private final long primaryStoreHits;
+    private final long totalSearches;
+    private final long coalescedRequests;
+    private final Map<CacheLevel, LatencySnapshot> latencies;
+
+    public CacheStatsSnapshot(long l1Hits, long l2Hits, long derivedHits, long primaryStoreHits,
+                              long totalSearches, long coalescedRequests,
+                              Map<CacheLevel, LatencySnapshot> latencies) {
+        this.l1Hits = l1Hits;
+        this.l2Hits = l2Hits;
+        this.derivedHits = derivedHits;
+        this.primaryStoreHits = primaryStoreHits;
+        this.totalSearches = totalSearches;
+        this.coalescedRequests = coalescedRequests;
+        this.latencies = Collections.unmodifiableMap(new EnumMap<>(latencies));
+    }
+
+    public long getL1Hits() { return l1Hits; }
+    public long getL2Hits() { return l2Hits; }
+    public long getDerivedHits() { return derivedHits; }
+    public long getPrimaryStoreHits() { return primaryStoreHits; }
+    public long getTotalSearches() { return totalSearches; }
+    public long getCoalescedRequests() { return coalescedRequests; }
+    public LatencySnapshot getLatency(CacheLevel level) { return latencies.get(level); }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(
+            "L1 Cache Hits: %d\n" +
+            "L2 Cache Hits: %d\n" +
+            "Derived Hits: %d\n" +
+            "Primary Store Hits: %d\n" +
+            "Total Searches: %d\n" +
+            "Coalesced Requests: %d",
+            l1Hits, l2Hits, derivedHits, primaryStoreHits, totalSearches, coalescedRequests
+        ));
+        for (Map.Entry<CacheLevel, LatencySnapshot> entry : latencies.entrySet()) {
+            sb.append('\n').append(entry.getKey()).append(" Latency: ").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+}
+
+// Log-linear buckets in the style of HdrHistogram: values below 128ns get their own bucket,
+// larger values share 64 buckets per power of two, so any recorded value is within ~1.6%.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(Math.max(0, nanos)));
+    }
+
+    public LatencySnapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new LatencySnapshot(copy);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
+
+class LatencySnapshot {
+    private final long[] counts;
+    private final long totalCount;
+
+    public LatencySnapshot(long[] counts) {
+        this.counts = counts;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        this.totalCount = total;
+    }
+
+    public long getCount() { return totalCount; }
+
+    // Upper bound, in nanoseconds, of the bucket holding the given percentile (0-100].
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(totalCount * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return LatencyHistogram.highestValueAt(i);
+            }
+        }
+        return LatencyHistogram.highestValueAt(counts.length - 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d p50=%.1fus p99=%.1fus p999=%.1fus",
+            totalCount,
+            getValueAtPercentile(50) / 1000.0,
+            getValueAtPercentile(99) / 1000.0,
+            getValueAtPercentile(99.9) / 1000.0);
+    }
+}
+
+public class Main {
+    public static void main(String[] args) {
+        ZipReelService service = new ZipReelService();
+
+        try {
+            service.addMovie("1", "Inception", "Sci-Fi", 2010, 9.5);
+            service.addMovie("2", "The Dark Knight", "Action", 2008, 9.0);
+            service.addUser("1", "John", "Action");
+
+            System.out.println("\nFirst search for Sci-Fi movies:");
+            List<SearchResult> results = service.search("1", SearchType.GENRE, "Sci-Fi");
+            results.forEach(System.out::println);
+
+            System.out.println("\nSecond search for Sci-Fi movies:");
+            results = service.search("1", SearchType.GENRE, "Sci-Fi");
+            results.forEach(System.out::println);
+
+            service.addUser("2", "Alice", "Sci-Fi");
+
+            System.out.println("\nSearch for Sci-Fi movies from different user:");
+            results = service.search("2", SearchType.GENRE, "Sci-Fi");
+            results.forEach(System.out::println);
+
+            System.out.println("\nSearching for movies from 2008:");
+            results = service.search("1", SearchType.YEAR, "2008");
+            results.forEach(System.out::println);
+
+            System.out.println("\nSecond search for 2008 movies:");
+            results = service.search("1", SearchType.YEAR, "2008");
+            results.forEach(System.out::println);
+
+            System.out.println("\nMulti-criteria search:");
+            results = service.searchMulti("1", "Action", 2008, 8.0);
+            results.forEach(System.out::println);
+
+            System.out.println("\nSecond multi-criteria search:");
+            results = service.searchMulti("1", "Action", 2008, 8.0);
+            results.forEach(System.out::println);
+
+            System.out.println("\nStricter multi-criteria search, derived from the cached one:");
+            results = service.searchMulti("1", "Action", 2008, 8.5);
+            results.forEach(System.out::println);
+
+            System.out.println("\nCache Statistics:");
+            System.out.println(service.getCacheStats());
+
+            service.clearCache(CacheLevel.L1);
+            System.out.println("\nAfter clearing L1 cache, searching for Sci-Fi movies:");
+            results = service.search("1", SearchType.GENRE, "Sci-Fi");
+            results.forEach(System.out::println);
+
+            service.addMovie("3", "Interstellar", "Sci-Fi", 2014, 8.7);
+            System.out.println("\nAfter adding a Sci-Fi movie, searching for Sci-Fi movies:");
+            results = service.search("1", SearchType.GENRE, "Sci-Fi");
+            results.forEach(System.out::println);
+
+            System.out.println("\nSearching for movies from 2000-2010:");
+            results = service.search("2", SearchType.YEAR_RANGE, "2000-2010");
+            results.forEach(System.out::println);
+
+            System.out.println("\nSearching for movies rated at least 9.0:");
+            results = service.search("2", SearchType.RATING_AT_LEAST, "9.0");
+            results.forEach(System.out::println);
+
+            System.out.println("\nTop-rated movie from 2000-2010:");
+            results = service.search("2", SearchType.YEAR_RANGE, "2000-2010", ResultOrder.RATING, 0, 1);
+            results.forEach(System.out::println);
+
+            System.out.println("\nSearching for titles starting with 'Incep':");
+            results = service.search("2", SearchType.TITLE_PREFIX, "Incep");
+            results.forEach(System.out::println);
+
+            System.out.println("\nFuzzy search for 'Dark Knigt':");
+            results = service.search("2", SearchType.TITLE_FUZZY, "Dark Knigt");
+            results.forEach(System.out::println);
+
+            System.out.println("\nFull-text search for 'dark knight action':");
+            results = service.search("2", SearchType.FULL_TEXT, "dark knight action");
+            results.forEach(System.out::println);
+
+            System.out.println("\nStreaming the first Action movie:");
+            service.searchStream("2", SearchType.GENRE, "Action").limit(1).forEach(System.out::println);
+
+            System.out.println("\nAsync search for Sci-Fi movies on a virtual thread:");
+            results = service.searchAsync("2", SearchType.GENRE, "Sci-Fi").join();
+            results.forEach(System.out::println);
+
+            System.out.println("\nFinal Cache Statistics:");
+            System.out.println(service.getCacheStats());
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+package zipreel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+// Writers insert movies while readers search, so invalidation races with cache fills. Once
+// everything has finished, every answer (most now served from L1/L2) must equal a scan of
+// the full catalog.
+class ConcurrentSearchTest {
+    private static final int THREADS = 16;
+    private static final int WRITERS = 4;
+    private static final int MOVIES_PER_WRITER = 1000;
+    private static final int SEARCHES_PER_READER = 2000;
+    private static final int USERS = 20;
+    private static final int GENRES = 5;
+    private static final int YEARS = 3;
+
+    private PrintStream stdout;
+
+    @BeforeEach
+    void silenceCatalogWrites() {
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @AfterEach
+    void restoreStdout() {
+        System.setOut(stdout);
+    }
+
+    @ParameterizedTest
+    @EnumSource(InvalidationMode.class)
+    void cachedAnswersMatchBruteForceAfterConcurrentWrites(InvalidationMode mode) throws Exception {
+        ZipReelService service = new ZipReelService(mode);
+        for (int u = 0; u < USERS; u++) {
+            service.addUser("u" + u, "User " + u, "G0");
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int first = w * MOVIES_PER_WRITER;
+            tasks.add(pool.submit(() -> {
+                for (int i = first; i < first + MOVIES_PER_WRITER; i++) {
+                    service.addMovie("m" + i, "Movie " + i, genre(i), year(i), rating(i));
+                }
+                return null;
+            }));
+        }
+        for (int r = WRITERS; r < THREADS; r++) {
+            Random random = new Random(r);
+            tasks.add(pool.submit(() -> {
+                for (int i = 0; i < SEARCHES_PER_READER; i++) {
+                    String user = "u" + random.nextInt(USERS);
+                    String genre = "G" + random.nextInt(GENRES);
+                    int year = 2000 + random.nextInt(YEARS);
+                    service.search(user, SearchType.GENRE, genre);
+                    service.search(user, SearchType.YEAR, String.valueOf(year));
+                    service.searchMulti(user, genre, year, random.nextInt(10));
+                    try (Stream<SearchResult> stream =
+                             service.searchStream(user, SearchType.RATING_AT_LEAST, String.valueOf(random.nextInt(10)))) {
+                        stream.limit(10).count();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        pool.shutdown();
+
+        for (int u = 0; u < USERS; u++) {
+            String user = "u" + u;
+            for (int g = 0; g < GENRES; g++) {
+                String genre = "G" + g;
+                assertEquals(expected(m -> m.genre().equals(genre)),
+                    ids(service.search(user, SearchType.GENRE, genre)), user + " GENRE " + genre);
+                for (int y = 0; y < YEARS; y++) {
+                    int year = 2000 + y;
+                    for (int minRating = 0; minRating < 10; minRating++) {
+                        double min = minRating;
+                        assertEquals(expected(m -> m.genre().equals(genre) && m.year() == year && m.rating() >= min),
+                            ids(service.searchMulti(user, genre, year, min)),
+                            user + " MULTI " + genre + "/" + year + "/" + min);
+                    }
+                }
+            }
+            for (int y = 0; y < YEARS; y++) {
+                int year = 2000 + y;
+                assertEquals(expected(m -> m.year() == year),
+                    ids(service.search(user, SearchType.YEAR, String.valueOf(year))), user + " YEAR " + year);
+            }
+            for (int minRating = 0; minRating < 10; minRating++) {
+                double min = minRating;
+                try (Stream<SearchResult> stream =
+                         service.searchStream(user, SearchType.RATING_AT_LEAST, String.valueOf(minRating))) {
+                    assertEquals(expected(m -> m.rating() >= min), ids(stream.collect(Collectors.toList())),
+                        user + " RATING_AT_LEAST " + min);
+                }
+            }
+        }
+    }
+
+    private record Spec(String id, String genre, int year, double rating) {
+    }
+
+    private static String genre(int i) {
+        return "G" + i % GENRES;
+    }
+
+    private static int year(int i) {
+        return 2000 + i % YEARS;
+    }
+
+    private static double rating(int i) {
+        return i % 10;
+    }
+
+    private static List<String> expected(Predicate<Spec> matches) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < WRITERS * MOVIES_PER_WRITER; i++) {
+            Spec movie = new Spec("m" + i, genre(i), year(i), rating(i));
+            if (matches.test(movie)) {
+                ids.add(movie.id());
+            }
+        }
+        return ids.stream().sorted().collect(Collectors.toList());
+    }
+
+    // Writers interleave, so catalog order is not deterministic; compare as sorted ids.
+    private static List<String> ids(List<SearchResult> results) {
+        return results.stream().map(r -> r.getMovie().getId()).sorted().collect(Collectors.toList());
+    }
+}
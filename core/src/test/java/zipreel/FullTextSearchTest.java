@@ -0,0 +1,132 @@
+package zipreel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// FULL_TEXT answers must follow BM25 order as computed here from scratch over the whole
+// catalog, ties in catalog order, for every page; the catalog has more "action" matches
+// than a search box ranks by default, so deep pages and RATING order reach past the
+// first MIN_DEPTH.
+class FullTextSearchTest {
+    private static final String USER = "u1";
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final String[] WORDS = {"dark", "knight", "star", "wars", "return", "king", "night", "lord"};
+    private static final String[] GENRES = {"Action", "Drama", "Sci-Fi"};
+
+    private PrintStream stdout;
+    private ZipReelService service;
+    private final List<Movie> catalog = new ArrayList<>();
+
+    @BeforeEach
+    void createCatalog() {
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        service = new ZipReelService();
+        service.addUser(USER, "User One", "Action");
+        Random random = new Random(11);
+        for (int i = 0; i < 4000; i++) {
+            StringBuilder title = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+            for (int w = random.nextInt(6); w > 0; w--) {
+                title.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            Movie movie = new Movie(String.valueOf(i), title.toString(), GENRES[random.nextInt(GENRES.length)],
+                2000, random.nextInt(101) / 10.0, i);
+            service.addMovie(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getYear(), movie.getRating());
+            catalog.add(movie);
+        }
+    }
+
+    @AfterEach
+    void restoreStdout() {
+        System.setOut(stdout);
+    }
+
+    @Test
+    void rankedByBm25() {
+        for (String query : List.of("knight", "dark knight", "Star Wars action", "lord of the rings")) {
+            assertEquals(movieIds(bm25(query)), ids(service.search(USER, SearchType.FULL_TEXT, query)), query);
+        }
+    }
+
+    @Test
+    void pagesBeyondTheFirstThousand() {
+        List<String> ranked = movieIds(bm25("action"));
+        for (int offset : new int[] {0, 980, 1000, 1010, ranked.size() - 5}) {
+            List<String> page = ids(service.search(USER, SearchType.FULL_TEXT, "action", ResultOrder.CATALOG, offset, 20));
+            assertEquals(ranked.subList(offset, Math.min(offset + 20, ranked.size())), page, "offset " + offset);
+        }
+    }
+
+    @Test
+    void ratingOrderPicksFromEveryMatch() {
+        List<Movie> byRating = new ArrayList<>(bm25("action"));
+        byRating.sort(Movie.BY_RATING);
+        List<String> page = ids(service.search(USER, SearchType.FULL_TEXT, "action", ResultOrder.RATING, 0, 50));
+        assertEquals(movieIds(byRating.subList(0, 50)), page);
+    }
+
+    // Every movie containing any query term, best score first, ties in catalog order.
+    private List<Movie> bm25(String query) {
+        List<String> terms = new ArrayList<>(new TreeSet<>(FullTextIndex.tokenize(query)));
+        List<List<String>> documents = new ArrayList<>();
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        long totalLength = 0;
+        for (Movie movie : catalog) {
+            List<String> tokens = FullTextIndex.tokenize(movie.getTitle() + " " + movie.getGenre());
+            documents.add(tokens);
+            totalLength += tokens.size();
+            for (String term : new TreeSet<>(tokens)) {
+                documentFrequencies.merge(term, 1, Integer::sum);
+            }
+        }
+        double averageLength = (double) totalLength / catalog.size();
+
+        double[] scores = new double[catalog.size()];
+        List<Movie> matches = new ArrayList<>();
+        for (Movie movie : catalog) {
+            List<String> tokens = documents.get(movie.getOrdinal());
+            double norm = K1 * (1 - B + B * tokens.size() / averageLength);
+            double score = 0;
+            boolean matched = false;
+            for (String term : terms) {
+                int frequency = (int) tokens.stream().filter(term::equals).count();
+                if (frequency > 0) {
+                    int n = documentFrequencies.get(term);
+                    double idf = Math.log(1 + (catalog.size() - n + 0.5) / (n + 0.5));
+                    score += idf * frequency * (K1 + 1) / (frequency + norm);
+                    matched = true;
+                }
+            }
+            if (matched) {
+                scores[movie.getOrdinal()] = score;
+                matches.add(movie);
+            }
+        }
+        matches.sort(Comparator.<Movie>comparingDouble(movie -> scores[movie.getOrdinal()]).reversed()
+            .thenComparingInt(Movie::getOrdinal));
+        return matches;
+    }
+
+    private static List<String> ids(List<SearchResult> results) {
+        return movieIds(results.stream().map(SearchResult::getMovie).collect(Collectors.toList()));
+    }
+
+    private static List<String> movieIds(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).collect(Collectors.toList());
+    }
+}
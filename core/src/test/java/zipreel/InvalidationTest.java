@@ -0,0 +1,159 @@
+package zipreel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+// Each test caches an answer, adds a movie and searches again. EVICT must drop exactly the
+// answers the movie affects, so they come back from the primary store; PATCH must extend
+// them in place, so they are still L1 hits. Ranked full-text answers are evicted in both.
+class InvalidationTest {
+    private static final String USER = "u1";
+
+    private PrintStream stdout;
+    private ZipReelService service;
+
+    @BeforeEach
+    void silenceCatalogWrites() {
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @AfterEach
+    void restoreStdout() {
+        System.setOut(stdout);
+    }
+
+    private void createService(InvalidationMode mode) {
+        service = new ZipReelService(mode);
+        service.addUser(USER, "User One", "Sci-Fi");
+        service.addMovie("1", "Inception", "Sci-Fi", 2010, 9.0);
+        service.addMovie("2", "The Dark Knight", "Action", 2008, 9.0);
+        service.addMovie("3", "Interstellar", "Sci-Fi", 2014, 8.6);
+    }
+
+    @ParameterizedTest
+    @EnumSource(InvalidationMode.class)
+    void genre(InvalidationMode mode) {
+        createService(mode);
+        Supplier<List<SearchResult>> search = () -> service.search(USER, SearchType.GENRE, "Sci-Fi");
+        cache(search, "Inception", "Interstellar");
+
+        service.addMovie("4", "Arrival", "Sci-Fi", 2016, 7.9);
+
+        assertAnswer(search.get(), afterAffectingWrite(mode), "Inception", "Interstellar", "Arrival");
+    }
+
+    @ParameterizedTest
+    @EnumSource(InvalidationMode.class)
+    void year(InvalidationMode mode) {
+        createService(mode);
+        Supplier<List<SearchResult>> search = () -> service.search(USER, SearchType.YEAR, "2010");
+        cache(search, "Inception");
+
+        service.addMovie("4", "Shutter Island", "Thriller", 2010, 8.2);
+
+        assertAnswer(search.get(), afterAffectingWrite(mode), "Inception", "Shutter Island");
+    }
+
+    @ParameterizedTest
+    @EnumSource(InvalidationMode.class)
+    void multiThresholdsAboveAndBelowNewRating(InvalidationMode mode) {
+        createService(mode);
+        Supplier<List<SearchResult>> above = () -> service.searchMulti(USER, "Sci-Fi", 2014, 8.0);
+        Supplier<List<SearchResult>> below = () -> service.searchMulti(USER, "Sci-Fi", 2014, 7.0);
+        cache(above, "Interstellar");
+        cache(below, "Interstellar");
+
+        service.addMovie("4", "Edge of Tomorrow", "Sci-Fi", 2014, 7.9);
+
+        assertAnswer(above.get(), CacheLevel.L1, "Interstellar");
+        assertAnswer(below.get(), afterAffectingWrite(mode), "Interstellar", "Edge of Tomorrow");
+    }
+
+    @ParameterizedTest
+    @EnumSource(InvalidationMode.class)
+    void yearRange(InvalidationMode mode) {
+        createService(mode);
+        Supplier<List<SearchResult>> search = () -> service.search(USER, SearchType.YEAR_RANGE, "2009-2015");
+        cache(search, "Inception", "Interstellar");
+
+        service.addMovie("4", "Gravity", "Sci-Fi", 2013, 7.7);
+
+        assertAnswer(search.get(), afterAffectingWrite(mode), "Inception", "Interstellar", "Gravity");
+    }
+
+    @ParameterizedTest
+    @EnumSource(InvalidationMode.class)
+    void yearRangeOutsideNewYear(InvalidationMode mode) {
+        createService(mode);
+        Supplier<List<SearchResult>> search = () -> service.search(USER, SearchType.YEAR_RANGE, "2009-2015");
+        cache(search, "Inception", "Interstellar");
+
+        service.addMovie("4", "Parasite", "Thriller", 2019, 8.6);
+
+        assertAnswer(search.get(), CacheLevel.L1, "Inception", "Interstellar");
+    }
+
+    @ParameterizedTest
+    @EnumSource(InvalidationMode.class)
+    void ratingAtLeast(InvalidationMode mode) {
+        createService(mode);
+        Supplier<List<SearchResult>> search = () -> service.search(USER, SearchType.RATING_AT_LEAST, "8.5");
+        cache(search, "Inception", "The Dark Knight", "Interstellar");
+
+        service.addMovie("4", "Parasite", "Thriller", 2019, 8.6);
+
+        assertAnswer(search.get(), afterAffectingWrite(mode), "Inception", "The Dark Knight", "Interstellar", "Parasite");
+    }
+
+    @ParameterizedTest
+    @EnumSource(InvalidationMode.class)
+    void titlePrefix(InvalidationMode mode) {
+        createService(mode);
+        Supplier<List<SearchResult>> search = () -> service.search(USER, SearchType.TITLE_PREFIX, "In");
+        cache(search, "Inception", "Interstellar");
+
+        service.addMovie("4", "Inside Out", "Animation", 2015, 8.1);
+
+        assertAnswer(search.get(), afterAffectingWrite(mode), "Inception", "Interstellar", "Inside Out");
+    }
+
+    @ParameterizedTest
+    @EnumSource(InvalidationMode.class)
+    void fullTextIsEvictedInBothModes(InvalidationMode mode) {
+        createService(mode);
+        Supplier<List<SearchResult>> search = () -> service.search(USER, SearchType.FULL_TEXT, "knight");
+        cache(search, "The Dark Knight");
+
+        service.addMovie("4", "A Knight's Tale", "Adventure", 2001, 6.9);
+
+        assertAnswer(search.get(), CacheLevel.PRIMARY_STORE, "The Dark Knight", "A Knight's Tale");
+    }
+
+    // The first search fills the caches from the primary store; the second is an L1 hit.
+    private static void cache(Supplier<List<SearchResult>> search, String... titles) {
+        assertAnswer(search.get(), CacheLevel.PRIMARY_STORE, titles);
+        assertAnswer(search.get(), CacheLevel.L1, titles);
+    }
+
+    private static CacheLevel afterAffectingWrite(InvalidationMode mode) {
+        return mode == InvalidationMode.EVICT ? CacheLevel.PRIMARY_STORE : CacheLevel.L1;
+    }
+
+    private static void assertAnswer(List<SearchResult> results, CacheLevel foundIn, String... titles) {
+        assertEquals(List.of(titles), results.stream().map(r -> r.getMovie().getTitle()).collect(Collectors.toList()));
+        for (SearchResult result : results) {
+            assertEquals(foundIn, result.getFoundIn(), result.toString());
+        }
+    }
+}
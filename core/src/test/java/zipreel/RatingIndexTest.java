@@ -0,0 +1,47 @@
+package zipreel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+// Movies arrive in batches of varying size with queries in between, so answers are served
+// from the delta run alone, from both runs, and right after the delta is merged into the
+// main run. Every answer must equal a scan of the ratings column.
+class RatingIndexTest {
+    private static final double[] THRESHOLDS = {Double.NEGATIVE_INFINITY, 0.0, 2.5, 5.0, 7.3, 9.9, 10.0, 11.0};
+
+    @Test
+    void answersMatchScanAcrossDeltaMerges() {
+        MovieColumns columns = new MovieColumns();
+        RatingIndex index = new RatingIndex(columns);
+        Random random = new Random(7);
+        int ordinal = 0;
+        for (int batch = 0; batch < 40; batch++) {
+            int size = random.nextBoolean() ? 1 + random.nextInt(50) : random.nextInt(3000);
+            for (int i = 0; i < size; i++, ordinal++) {
+                double rating = random.nextInt(101) / 10.0;
+                columns.append(new Movie(String.valueOf(ordinal), "Movie " + ordinal, "Drama", 2000, rating, ordinal));
+            }
+
+            OrdinalBitmap candidates = new OrdinalBitmap();
+            for (int i = 0; i < ordinal; i++) {
+                if (random.nextInt(4) == 0) {
+                    candidates.add(i);
+                }
+            }
+            for (double minRating : THRESHOLDS) {
+                assertArrayEquals(scan(columns, IntStream.range(0, ordinal).toArray(), minRating),
+                    index.atLeast(minRating));
+                assertArrayEquals(scan(columns, candidates.toArray(), minRating),
+                    index.filterAtLeast(candidates, minRating));
+            }
+        }
+    }
+
+    private static int[] scan(MovieColumns columns, int[] ordinals, double minRating) {
+        return IntStream.of(ordinals).filter(ordinal -> columns.rating(ordinal) >= minRating).toArray();
+    }
+}
@@ -0,0 +1,75 @@
+package zipreel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// A GENRE miss streams straight from the genre's posting bitmap, a batch at a time. The
+// catalog spans several 65536-ordinal chunks, with a dense genre (bitset chunks) and a rare
+// one (array chunks); movies added while a stream is half read must not appear in it.
+class SearchStreamTest {
+    private static final String USER = "u1";
+    private static final int MOVIES = 150_000;
+
+    private PrintStream stdout;
+    private ZipReelService service;
+
+    @BeforeEach
+    void createCatalog() {
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        service = new ZipReelService();
+        service.addUser(USER, "User One", "Drama");
+        for (int i = 0; i < MOVIES; i++) {
+            service.addMovie(String.valueOf(i), "Movie " + i, i % 97 == 0 ? "Western" : "Drama", 2000, 7.0);
+        }
+    }
+
+    @AfterEach
+    void restoreStdout() {
+        System.setOut(stdout);
+    }
+
+    @Test
+    void streamedMissMatchesSearch() {
+        for (String genre : List.of("Drama", "Western", "Horror")) {
+            List<String> streamed = service.searchStream(USER, SearchType.GENRE, genre)
+                .map(result -> result.getMovie().getId())
+                .collect(Collectors.toList());
+            service.clearCache(CacheLevel.L1);
+            service.clearCache(CacheLevel.L2);
+            assertEquals(ids(service.search(USER, SearchType.GENRE, genre)), streamed);
+        }
+    }
+
+    @Test
+    void moviesAddedMidStreamAreNotEmitted() {
+        List<String> expected = ids(service.search(USER, SearchType.GENRE, "Western"));
+        service.clearCache(CacheLevel.L1);
+        service.clearCache(CacheLevel.L2);
+
+        Iterator<SearchResult> stream = service.searchStream(USER, SearchType.GENRE, "Western").iterator();
+        List<String> streamed = new ArrayList<>();
+        streamed.add(stream.next().getMovie().getId());
+        for (int i = MOVIES; i < MOVIES + 1000; i++) {
+            service.addMovie(String.valueOf(i), "Movie " + i, "Western", 2001, 6.0);
+        }
+        stream.forEachRemaining(result -> streamed.add(result.getMovie().getId()));
+
+        assertEquals(expected, streamed);
+        assertEquals(expected.size() + 1000, service.search(USER, SearchType.GENRE, "Western").size());
+    }
+
+    private static List<String> ids(List<SearchResult> results) {
+        return results.stream().map(result -> result.getMovie().getId()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,151 @@
+package zipreel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// TITLE_PREFIX and TITLE_FUZZY answers come from the prefix and trigram indexes; here they
+// must equal a scan of every title, with fuzzy matches checked by a plain edit distance
+// taken over every substring of the title.
+class TitleSearchTest {
+    private static final String USER = "u1";
+    private static final int MOVIES = 400;
+    private static final String[] WORDS = {
+        "the", "dark", "knight", "star", "wars", "return", "of", "king", "night", "lord", "rings", "stars"
+    };
+
+    private PrintStream stdout;
+    private ZipReelService service;
+    private final List<Movie> catalog = new ArrayList<>();
+
+    @BeforeEach
+    void createCatalog() {
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        service = new ZipReelService();
+        service.addUser(USER, "User One", "Action");
+        Random random = new Random(42);
+        for (int i = 0; i < MOVIES; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int w = 1 + random.nextInt(3); w > 0; w--) {
+                title.append(title.length() == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            String prefix = random.nextBoolean() ? "The " : "";
+            Movie movie = new Movie(String.valueOf(i), prefix + title, "Action", 2000, 7.0, i);
+            service.addMovie(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getYear(), movie.getRating());
+            catalog.add(movie);
+        }
+    }
+
+    @AfterEach
+    void restoreStdout() {
+        System.setOut(stdout);
+    }
+
+    @Test
+    void substringDistance() {
+        assertEquals(0, TitleText.substringDistance("dark", "the dark knight", 0));
+        assertEquals(1, TitleText.substringDistance("dark knigt", "the dark knight", 1));
+        assertEquals(2, TitleText.substringDistance("drak", "the dark knight", 2));
+        assertEquals(2, TitleText.substringDistance("kitten", "sitting", 2));
+        assertTrue(TitleText.substringDistance("kitten", "sitting", 1) > 1);
+        assertTrue(TitleText.substringDistance("inception", "the dark knight", 2) > 2);
+    }
+
+    @Test
+    void prefixMatchesScan() {
+        for (String prefix : List.of("t", "The", "the dark", "star w", "stars", "king of", "zzz")) {
+            String normalized = TitleText.normalize(prefix);
+            assertAnswer(service.search(USER, SearchType.TITLE_PREFIX, prefix),
+                movie -> TitleText.normalize(movie.getTitle()).startsWith(normalized));
+        }
+    }
+
+    @Test
+    void fuzzyMatchesScan() {
+        for (String query : List.of("drak", "knigth", "dark knigt", "retrun of", "star wras", "lord of the rigns",
+                "the kign of wars", "nihgt stars")) {
+            TitleFuzzyKey key = TitleFuzzyKey.parse(query);
+            assertAnswer(service.search(USER, SearchType.TITLE_FUZZY, query),
+                movie -> distanceToSubstring(key.getQuery(), TitleText.normalize(movie.getTitle())) <= key.getMaxEdits());
+        }
+    }
+
+    // The count filter is only sound if no title within maxEdits shares fewer trigrams.
+    @Test
+    void trigramBoundHoldsForEveryMatch() {
+        for (String query : List.of("knigth", "dark knigt", "star wras", "lord of the rigns", "the kign of wars")) {
+            TitleFuzzyKey key = TitleFuzzyKey.parse(query);
+            for (Movie movie : catalog) {
+                String title = TitleText.normalize(movie.getTitle());
+                if (distanceToSubstring(key.getQuery(), title) <= key.getMaxEdits()) {
+                    Set<String> shared = new HashSet<>(TitleText.trigrams(key.getQuery()));
+                    shared.retainAll(TitleText.trigrams(title));
+                    assertTrue(shared.size() >= key.requiredTrigrams(), query + " / " + title);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsQueriesTheIndexCannotNarrow() {
+        assertThrows(IllegalArgumentException.class, () -> service.search(USER, SearchType.TITLE_FUZZY, "ab"));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.search(USER, SearchType.TITLE_FUZZY, "aaaaaaaaaaaa"));
+    }
+
+    private void assertAnswer(List<SearchResult> results, Predicate<Movie> matches) {
+        List<String> expected = new ArrayList<>();
+        for (Movie movie : catalog) {
+            if (matches.test(movie)) {
+                expected.add(movie.getId());
+            }
+        }
+        List<String> actual = new ArrayList<>();
+        for (SearchResult result : results) {
+            actual.add(result.getMovie().getId());
+        }
+        assertEquals(expected, actual);
+    }
+
+    // Levenshtein distance from the query to each substring of the text, smallest wins.
+    private static int distanceToSubstring(String query, String text) {
+        int best = query.length();
+        for (int from = 0; from <= text.length(); from++) {
+            for (int to = from; to <= text.length(); to++) {
+                best = Math.min(best, levenshtein(query, text.substring(from, to)));
+            }
+        }
+        return best;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] distance = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            distance[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            distance[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int substitute = distance[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                distance[i][j] = Math.min(substitute, Math.min(distance[i - 1][j], distance[i][j - 1]) + 1);
+            }
+        }
+        return distance[a.length()][b.length()];
+    }
+}